@@ -0,0 +1,240 @@
+package command;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Runs commands asynchronously on a pool of worker threads.
+// Each worker has its own bounded queue (many submitters, one consumer).
+// All commands for the same receiver (e.g. one Light) go to the same worker,
+// so they run one at a time and in submission order; commands for different
+// receivers land on different workers and run in parallel.
+// A command with no single receiver (receiver() == null, e.g. a MacroCommand
+// over several lights) is a barrier: it runs after everything submitted before
+// it and before everything submitted after it, on every worker.
+// submit() never waits: it returns a future, or a failed one if the queue is full.
+class CommandExecutor {
+    private final Worker[] workers;
+    private boolean shutdown = false; // guarded by submitLock
+
+    // Read lock: submit() of a single-receiver command (any number at once).
+    // Write lock: submit() of a barrier, and shutdown(). So a barrier lands in
+    // every queue with nothing interleaved, and nothing is enqueued after STOP.
+    private final ReadWriteLock submitLock = new ReentrantReadWriteLock();
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder(); // submit -> finished
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    public CommandExecutor(int workerCount, int queueCapacityPerWorker) {
+        if (workerCount <= 0 || queueCapacityPerWorker <= 0) {
+            throw new IllegalArgumentException("workerCount and queueCapacityPerWorker must be > 0");
+        }
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(queueCapacityPerWorker, "command-worker-" + i);
+            workers[i].thread.start();
+        }
+    }
+
+    private static class Task {
+        final Command command;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final long submittedAt = System.nanoTime();
+
+        Task(Command command) {
+            this.command = command;
+        }
+    }
+
+    // One barrier command, queued on every worker. Each worker that reaches it
+    // waits; the last one to arrive runs the command and releases the others.
+    private static final class Barrier extends Task {
+        private final int parties;
+        private int arrived = 0;           // guarded by "this"
+        private boolean released = false;  // guarded by "this"
+
+        Barrier(Command command, int parties) {
+            super(command);
+            this.parties = parties;
+        }
+
+        // true = caller is the last to arrive and must run the command, then release()
+        synchronized boolean arriveAndAwait() {
+            if (released) {
+                return false; // cancelled before we got here
+            }
+            if (++arrived == parties) {
+                return true;
+            }
+            boolean interrupted = false;
+            while (!released) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true; // the other workers are counting on us: keep waiting
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        synchronized void release() {
+            released = true;
+            notifyAll();
+        }
+    }
+
+    // Marks the end of a worker's queue on shutdown
+    private static final Task STOP = new Task(Command.NO_OP);
+
+    public CompletableFuture<Void> submit(Command cmd) {
+        Object receiver = cmd.receiver();
+        if (receiver == null && workers.length > 1) {
+            return submitBarrier(cmd);
+        }
+        Task task = new Task(cmd);
+        submitLock.readLock().lock();
+        try {
+            if (shutdown) {
+                reject(task, "executor is shut down");
+            } else if (!workerFor(receiver).queue.offer(task)) {
+                reject(task, "command queue is full");
+            }
+        } finally {
+            submitLock.readLock().unlock();
+        }
+        return task.future;
+    }
+
+    private CompletableFuture<Void> submitBarrier(Command cmd) {
+        Barrier barrier = new Barrier(cmd, workers.length);
+        submitLock.writeLock().lock();
+        try {
+            if (shutdown) {
+                reject(barrier, "executor is shut down");
+                return barrier.future;
+            }
+            for (Worker w : workers) {
+                if (!w.queue.offer(barrier)) {
+                    // Some queues already hold it: workers that reach it will skip it
+                    barrier.release();
+                    reject(barrier, "command queue is full");
+                    break;
+                }
+            }
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+        return barrier.future;
+    }
+
+    private void reject(Task task, String reason) {
+        rejected.increment();
+        task.future.completeExceptionally(new RejectedExecutionException(reason));
+    }
+
+    private Worker workerFor(Object receiver) {
+        if (receiver == null) {
+            return workers[0]; // single worker: it already runs everything in order
+        }
+        int h = System.identityHashCode(receiver);
+        return workers[Math.floorMod(h ^ (h >>> 16), workers.length)];
+    }
+
+    // Run everything already queued, then stop the workers
+    public void shutdown() throws InterruptedException {
+        submitLock.writeLock().lock();
+        boolean first;
+        try {
+            first = !shutdown;
+            shutdown = true; // from here on no submit() can enqueue anything
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+        if (first) {
+            for (Worker w : workers) {
+                w.queue.put(STOP);
+            }
+        }
+        for (Worker w : workers) {
+            w.thread.join();
+        }
+    }
+
+    // Metrics
+    public int queueDepth() {
+        int depth = 0;
+        for (Worker w : workers) depth += w.queue.size();
+        return depth;
+    }
+
+    public long completedCount() { return completed.sum(); }
+    public long rejectedCount() { return rejected.sum(); }
+    public long maxLatencyNanos() { return maxLatencyNanos.get(); }
+
+    public long averageLatencyNanos() {
+        long count = completed.sum();
+        return count == 0 ? 0 : totalLatencyNanos.sum() / count;
+    }
+
+    private final class Worker implements Runnable {
+        final BlockingQueue<Task> queue;
+        final Thread thread;
+
+        Worker(int capacity, String name) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (task == STOP) {
+                    return; // shutdown() made sure nothing was queued after it
+                }
+                if (task instanceof Barrier) {
+                    Barrier barrier = (Barrier) task;
+                    if (!barrier.arriveAndAwait()) {
+                        continue; // another worker ran it
+                    }
+                    try {
+                        run(task);
+                    } finally {
+                        barrier.release();
+                    }
+                } else {
+                    run(task);
+                }
+            }
+        }
+
+        private void run(Task task) {
+            try {
+                task.command.execute();
+                task.future.complete(null);
+            } catch (RuntimeException e) {
+                task.future.completeExceptionally(e);
+            }
+            long latency = System.nanoTime() - task.submittedAt;
+            completed.increment();
+            totalLatencyNanos.add(latency);
+            maxLatencyNanos.accumulate(latency);
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package command;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Write-ahead journal for RemoteControl, so light states survive a crash.
+// RemoteControl encodes a command first (encode() rejects anything the journal
+// can't represent, before it runs), appends the frame, and only then executes it.
+// If execute() then throws, it appends a compensating frame (restore()) that puts
+// the touched lights back as they were. Only fsynced frames are guaranteed to
+// survive a crash.
+//
+// Journal file: [magic][generation] header, then one frame per press/undo:
+//   [int payload length][int CRC32 of payload][payload = n x (byte op, int light id)]
+// A frame is all-or-nothing: a torn or corrupt frame at the end (crash mid-write)
+// fails its length/CRC check and everything from there on is ignored.
+//
+// Group commit: append() only copies the frame into a memory buffer; a background
+// thread writes the buffer and fsyncs every groupCommitMillis, so one fsync covers
+// every frame appended in that window. Callers that must know a frame is on disk
+// call awaitDurable(ticket).
+//
+// If a write or fsync fails the journal is failed for good: frames that were in
+// the failed batch are not on disk, so append() and awaitDurable() throw from then
+// on instead of pretending later frames are safe.
+//
+// Snapshots: every snapshotEvery frames the current light states are written to a
+// snapshot file with the next generation number, and the journal restarts empty
+// under that generation. On open: load the snapshot, then replay the journal only
+// if its generation matches. Ops are absolute (ON/OFF, not "toggle"), so replaying
+// a frame whose effect is already in the snapshot does no harm.
+class CommandJournal implements Closeable {
+    private static final int MAGIC = 0x434A524E; // "CJRN"
+    private static final int HEADER_BYTES = 12;  // magic + long generation
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final byte OP_ON = 1;
+    private static final byte OP_OFF = 2;
+
+    private final Path journalFile;
+    private final Path snapshotFile;
+    private final List<Light> lights; // a light's id is its index in this list
+    private final Map<Light, Integer> ids = new IdentityHashMap<>();
+    private final long groupCommitMillis;
+    private final int snapshotEvery;
+
+    private final FileChannel channel;
+    private long generation;
+
+    // Appended but not yet written (guarded by "this")
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private long appendedFrames = 0;
+    private long durableFrames = 0;
+
+    // Guards writing the file (commit + snapshot); only one at a time
+    private final Object commitLock = new Object();
+    private long framesSinceSnapshot = 0; // guarded by commitLock
+
+    private final Thread flusher;
+    private volatile boolean closed = false;  // no more appends
+    private boolean finished = false;         // final commit done (guarded by "this")
+    private IOException failure;              // first failed write/fsync (guarded by "this")
+
+    private CommandJournal(Path dir, List<Light> lights, long groupCommitMillis, int snapshotEvery) throws IOException {
+        this.journalFile = dir.resolve("commands.journal");
+        this.snapshotFile = dir.resolve("lights.snapshot");
+        this.lights = lights;
+        for (int i = 0; i < lights.size(); i++) {
+            ids.put(lights.get(i), i);
+        }
+        this.groupCommitMillis = groupCommitMillis;
+        this.snapshotEvery = snapshotEvery;
+        this.channel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.flusher = new Thread(this::flushLoop, "command-journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    // Open (or create) the journal in `dir` and restore the lights' states from it
+    public static CommandJournal open(Path dir, List<Light> lights, long groupCommitMillis, int snapshotEvery)
+            throws IOException {
+        if (groupCommitMillis <= 0) {
+            throw new IllegalArgumentException("groupCommitMillis must be > 0: " + groupCommitMillis);
+        }
+        if (snapshotEvery <= 0) {
+            throw new IllegalArgumentException("snapshotEvery must be > 0: " + snapshotEvery);
+        }
+        Files.createDirectories(dir);
+        CommandJournal journal = new CommandJournal(dir, lights, groupCommitMillis, snapshotEvery);
+        try {
+            journal.recover();
+        } catch (IOException | RuntimeException e) {
+            journal.channel.close();
+            throw e;
+        }
+        journal.flusher.start();
+        return journal;
+    }
+
+    // ---- recovery ----
+
+    private void recover() throws IOException {
+        long snapshotGeneration = loadSnapshot();
+        generation = snapshotGeneration;
+
+        if (channel.size() < HEADER_BYTES) {
+            resetJournal(); // new (or torn while creating): start empty
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a command journal: " + journalFile);
+        }
+        if (header.getLong() != snapshotGeneration) {
+            resetJournal(); // crashed after the snapshot but before the journal restarted
+            return;
+        }
+
+        long position = HEADER_BYTES;
+        long end = channel.size();
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+        while (position + FRAME_HEADER_BYTES <= end) {
+            frameHeader.clear();
+            readFully(frameHeader, position);
+            frameHeader.flip();
+            int length = frameHeader.getInt();
+            int crc = frameHeader.getInt();
+            if (length <= 0 || length % 5 != 0 || position + FRAME_HEADER_BYTES + length > end) {
+                break; // torn frame
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + FRAME_HEADER_BYTES);
+            payload.flip();
+            if (crc32(payload) != crc) {
+                break; // corrupt frame
+            }
+            apply(payload);
+            position += FRAME_HEADER_BYTES + length;
+        }
+        // Drop the torn tail so new frames follow the last good one
+        channel.truncate(position);
+        channel.position(position);
+    }
+
+    private long loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+        ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        if (snapshot.getInt() != MAGIC) {
+            throw new IOException("Not a light snapshot: " + snapshotFile);
+        }
+        long snapshotGeneration = snapshot.getLong();
+        int count = snapshot.getInt();
+        for (int i = 0; i < count && i < lights.size(); i++) {
+            lights.get(i).restore(snapshot.get() != 0);
+        }
+        return snapshotGeneration;
+    }
+
+    private void apply(ByteBuffer payload) {
+        while (payload.hasRemaining()) {
+            byte op = payload.get();
+            int id = payload.getInt();
+            if (id >= 0 && id < lights.size()) {
+                lights.get(id).restore(op == OP_ON);
+            }
+        }
+    }
+
+    private void resetJournal() throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putLong(generation).flip();
+        writeFully(header, 0);
+        channel.force(true);
+        channel.position(HEADER_BYTES);
+    }
+
+    // ---- appending ----
+
+    // One encoded press/undo, ready to append (payload + its CRC)
+    static final class Frame {
+        private final ByteBuffer payload; // read-only from here on: always use duplicate()
+        private final int crc;
+
+        private Frame(ByteBuffer payload) {
+            this.payload = payload;
+            this.crc = crc32(payload);
+        }
+    }
+
+    // Encode a command (undo = true: its undo). Throws IllegalArgumentException for
+    // commands or lights this journal can't represent, so callers can reject them
+    // before anything runs.
+    public Frame encode(Command cmd, boolean undo) {
+        ByteBuffer payload = encode(cmd, undo, ByteBuffer.allocate(64));
+        payload.flip();
+        return new Frame(payload);
+    }
+
+    // A frame that sets every light `frame` touches back to its current state.
+    // Taken before executing, appended if execution fails.
+    public Frame restore(Frame frame) {
+        ByteBuffer in = frame.payload.duplicate();
+        ByteBuffer out = ByteBuffer.allocate(in.remaining());
+        boolean[] seen = new boolean[lights.size()];
+        while (in.hasRemaining()) {
+            in.get(); // op
+            int id = in.getInt();
+            if (!seen[id]) {
+                seen[id] = true;
+                out.put(lights.get(id).isOn() ? OP_ON : OP_OFF).putInt(id);
+            }
+        }
+        out.flip();
+        return new Frame(out);
+    }
+
+    // Shorthand for append(encode(cmd, undo))
+    public long append(Command cmd, boolean undo) {
+        return append(encode(cmd, undo));
+    }
+
+    // Returns a ticket for awaitDurable()
+    public long append(Frame frame) {
+        ByteBuffer payload = frame.payload.duplicate();
+        int crc = frame.crc;
+
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("journal is closed");
+            }
+            checkNotFailed();
+            if (!payload.hasRemaining()) {
+                return appendedFrames; // changed nothing (e.g. NO_OP): nothing to log
+            }
+            int need = FRAME_HEADER_BYTES + payload.remaining();
+            if (pending.remaining() < need) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + need));
+                pending.flip();
+                bigger.put(pending);
+                pending = bigger;
+            }
+            pending.putInt(payload.remaining()).putInt(crc).put(payload);
+            return ++appendedFrames;
+        }
+    }
+
+    private ByteBuffer encode(Command cmd, boolean undo, ByteBuffer out) {
+        if (cmd instanceof LightOnCommand || cmd instanceof LightOffCommand) {
+            boolean turnsOn = cmd instanceof LightOnCommand;
+            if (undo) {
+                turnsOn = !turnsOn;
+            }
+            return put(out, turnsOn ? OP_ON : OP_OFF, idOf((Light) cmd.receiver()));
+        }
+        if (cmd instanceof MacroCommand) {
+            MacroCommand macro = (MacroCommand) cmd;
+            if (!undo) {
+                for (Command c : macro.commands()) {
+                    out = encode(c, false, out);
+                }
+            } else {
+                // What undo() ran: each group's undo record, newest first
+                for (Command[] group : macro.undoRecord()) {
+                    for (int i = group.length - 1; i >= 0; i--) {
+                        out = encode(group[i], true, out);
+                    }
+                }
+            }
+            return out;
+        }
+        if (cmd == Command.NO_OP) {
+            return out;
+        }
+        throw new IllegalArgumentException("Can't journal " + cmd.getClass().getSimpleName());
+    }
+
+    private int idOf(Light light) {
+        Integer id = ids.get(light);
+        if (id == null) {
+            throw new IllegalArgumentException("Light is not registered with this journal");
+        }
+        return id;
+    }
+
+    private static ByteBuffer put(ByteBuffer out, byte op, int id) {
+        if (out.remaining() < 5) {
+            ByteBuffer bigger = ByteBuffer.allocate(out.capacity() * 2);
+            out.flip();
+            bigger.put(out);
+            out = bigger;
+        }
+        return out.put(op).putInt(id);
+    }
+
+    // Block until the frame with this ticket has been fsynced
+    public synchronized void awaitDurable(long ticket) throws InterruptedException {
+        while (durableFrames < ticket) {
+            checkNotFailed();
+            if (finished) {
+                throw new IllegalStateException("journal is closed");
+            }
+            wait();
+        }
+    }
+
+    // Called with "this" held
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("command journal failed", failure);
+        }
+    }
+
+    // ---- group commit + snapshots ----
+
+    private void flushLoop() {
+        while (true) {
+            try {
+                synchronized (this) {
+                    // Not Thread.sleep + interrupt: interrupting a thread inside a
+                    // FileChannel call closes the channel. close() wakes us instead.
+                    if (!closed) {
+                        wait(groupCommitMillis);
+                    }
+                    if (closed) {
+                        return;
+                    }
+                }
+                commit();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                return; // recorded in `failure`; appenders and waiters see it
+            }
+        }
+    }
+
+    // Write + fsync everything appended so far (one fsync for the whole batch)
+    public void commit() throws IOException {
+        synchronized (commitLock) {
+            ByteBuffer batch;
+            long batchFrames;
+            long frames;
+            synchronized (this) {
+                if (failure != null) {
+                    throw new IOException("command journal failed", failure);
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                batch = pending;
+                batchFrames = appendedFrames;
+                frames = appendedFrames - durableFrames;
+                pending = ByteBuffer.allocate(batch.capacity());
+            }
+            batch.flip();
+            try {
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                // Part of the batch may be on disk, part not: we can't tell which
+                // frames survived, so fail the journal rather than lose them quietly
+                throw fail(e);
+            }
+            synchronized (this) {
+                durableFrames = batchFrames;
+                notifyAll();
+            }
+
+            framesSinceSnapshot += frames;
+            if (framesSinceSnapshot >= snapshotEvery) {
+                try {
+                    snapshot();
+                } catch (IOException e) {
+                    throw fail(e); // the journal file may be half reset
+                }
+            }
+        }
+    }
+
+    private synchronized IOException fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        notifyAll(); // wake awaitDurable() callers so they see it
+        return e;
+    }
+
+    // Save all light states under the next generation, then restart the journal.
+    // Called with commitLock held, right after a commit (nothing left unwritten
+    // that this snapshot could miss -- and replaying extra frames is harmless).
+    private void snapshot() throws IOException {
+        long next = generation + 1;
+        ByteBuffer snapshot = ByteBuffer.allocate(HEADER_BYTES + 4 + lights.size());
+        snapshot.putInt(MAGIC).putLong(next).putInt(lights.size());
+        for (Light light : lights) {
+            snapshot.put((byte) (light.isOn() ? 1 : 0));
+        }
+        snapshot.flip();
+
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (snapshot.hasRemaining()) {
+                out.write(snapshot);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        generation = next;
+        resetJournal();
+        framesSinceSnapshot = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll(); // wakes the flusher (and anyone in awaitDurable)
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            commit(); // whatever the flusher didn't get to
+        } finally {
+            synchronized (this) {
+                finished = true;
+                notifyAll();
+            }
+            channel.close();
+        }
+    }
+
+    // ---- helpers ----
+
+    private static int crc32(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private void readFully(ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            if (channel.read(dst, position + dst.position()) < 0) {
+                throw new IOException("Unexpected end of " + journalFile);
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src, position + src.position());
+        }
+    }
+}
@@ -1,7 +1,19 @@
 package command;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 // Command Pattern = encapsulate a request as an object.
 // So you can store it, queue it, run it later, undo it, etc.
@@ -9,6 +21,24 @@ import java.util.List;
 interface Command {
     void execute();
     void undo();
+
+    // The object this command acts on (commands for the same receiver must
+    // run in order); null = no particular receiver
+    default Object receiver() {
+        return null;
+    }
+
+    // For history compaction: the one command equivalent to running `this`
+    // and then `next` (NO_OP if they cancel out), or null if they can't merge
+    default Command mergeWith(Command next) {
+        return null;
+    }
+
+    // Does nothing; what two commands that cancel out merge into
+    Command NO_OP = new Command() {
+        public void execute() { }
+        public void undo() { }
+    };
 }
 
 // Receiver (the real object that does the work)
@@ -28,6 +58,11 @@ class Light {
     public boolean isOn() {
         return isOn;
     }
+
+    // Set the state quietly (used when replaying a journal after a restart)
+    void restore(boolean on) {
+        isOn = on;
+    }
 }
 
 // Concrete Commands
@@ -38,6 +73,10 @@ class LightOnCommand implements Command {
         this.light = light;
     }
 
+    public Object receiver() {
+        return light;
+    }
+
     public void execute() {
         light.on();
     }
@@ -45,6 +84,13 @@ class LightOnCommand implements Command {
     public void undo() {
         light.off();
     }
+
+    // on + on = on; on + off on the same light = nothing to undo
+    public Command mergeWith(Command next) {
+        if (next instanceof LightOnCommand && next.receiver() == light) return this;
+        if (next instanceof LightOffCommand && next.receiver() == light) return NO_OP;
+        return null;
+    }
 }
 
 class LightOffCommand implements Command {
@@ -54,6 +100,10 @@ class LightOffCommand implements Command {
         this.light = light;
     }
 
+    public Object receiver() {
+        return light;
+    }
+
     public void execute() {
         light.off();
     }
@@ -61,29 +111,283 @@ class LightOffCommand implements Command {
     public void undo() {
         light.on();
     }
+
+    // off + off = off; off + on on the same light = nothing to undo
+    public Command mergeWith(Command next) {
+        if (next instanceof LightOffCommand && next.receiver() == light) return this;
+        if (next instanceof LightOnCommand && next.receiver() == light) return NO_OP;
+        return null;
+    }
+}
+
+// Macro = many commands executed (and undone) as one unit.
+// The remote stores it as a single history entry; undo replays the undo
+// record in reverse. The undo record is compacted with mergeWith(), so
+// e.g. ON,OFF,ON on one light leaves only one step to undo for that light.
+// Commands run grouped by receiver: all of the first receiver's commands, then
+// all of the next one's, and so on. Each receiver's own commands keep their list
+// order, but commands for different receivers may run in a different order than
+// listed (if any command has no receiver, the whole list runs in order instead).
+// With parallel = true, the receiver groups run in parallel.
+// All or nothing: if a command throws, everything already executed is undone
+// (newest first) and the exception is rethrown, so a failed macro leaves no
+// half-applied changes and has nothing to undo.
+class MacroCommand implements Command {
+    private final Command[] commands;
+    private final boolean parallel;
+    private Command[][] undoGroups; // per receiver, compacted; set by execute()
+
+    public MacroCommand(List<Command> commands) {
+        this(commands, false);
+    }
+
+    public MacroCommand(List<Command> commands, boolean parallel) {
+        this.commands = commands.toArray(new Command[0]);
+        this.parallel = parallel;
+    }
+
+    public void execute() {
+        undoGroups = null;
+        List<List<Command>> byReceiver = groupByReceiver();
+        // Some command has no known receiver: can't prove independence, run in order
+        List<List<Command>> groups = byReceiver != null
+                ? byReceiver : Collections.singletonList(Arrays.asList(commands));
+
+        // executed[g] = how many of group g's commands ran; failures[g] = what stopped it
+        int[] executed = new int[groups.size()];
+        RuntimeException[] failures = new RuntimeException[groups.size()];
+        AtomicBoolean failed = new AtomicBoolean(); // stop starting new commands once one fails
+        IntStream indices = IntStream.range(0, groups.size());
+        (parallel ? indices.parallel() : indices).forEach(g -> {
+            for (Command c : groups.get(g)) {
+                if (failed.get()) {
+                    return;
+                }
+                try {
+                    c.execute();
+                } catch (RuntimeException e) {
+                    failures[g] = e;
+                    failed.set(true);
+                    return;
+                }
+                executed[g]++;
+            }
+        });
+
+        RuntimeException failure = null;
+        for (RuntimeException e : failures) {
+            if (e == null) continue;
+            if (failure == null) failure = e;
+            else failure.addSuppressed(e);
+        }
+        if (failure != null) {
+            rollBack(groups, executed, failure);
+            throw failure;
+        }
+        undoGroups = groups.stream().map(MacroCommand::compact).toArray(Command[][]::new);
+    }
+
+    // Undo the part of a failed execute() that did run, newest first per group
+    private static void rollBack(List<List<Command>> groups, int[] executed, RuntimeException failure) {
+        for (int g = groups.size() - 1; g >= 0; g--) {
+            List<Command> group = groups.get(g);
+            for (int i = executed[g] - 1; i >= 0; i--) {
+                try {
+                    group.get(i).undo();
+                } catch (RuntimeException e) {
+                    failure.addSuppressed(e); // keep rolling back the rest
+                }
+            }
+        }
+    }
+
+    public void undo() {
+        if (undoGroups == null) {
+            return; // never executed
+        }
+        if (parallel && undoGroups.length > 1) {
+            Arrays.stream(undoGroups).parallel().forEach(MacroCommand::undoInReverse);
+        } else {
+            for (int i = undoGroups.length - 1; i >= 0; i--) {
+                undoInReverse(undoGroups[i]);
+            }
+        }
+    }
+
+    private static void undoInReverse(Command[] group) {
+        for (int i = group.length - 1; i >= 0; i--) {
+            group[i].undo();
+        }
+    }
+
+    // Commands grouped by receiver, each group in original order; null if any receiver is unknown
+    private List<List<Command>> groupByReceiver() {
+        Map<Object, List<Command>> groups = new LinkedHashMap<>();
+        for (Command c : commands) {
+            Object receiver = c.receiver();
+            if (receiver == null) {
+                return null;
+            }
+            groups.computeIfAbsent(receiver, r -> new ArrayList<>()).add(c);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    // Fold adjacent commands with mergeWith (same rules as RemoteControl compaction)
+    private static Command[] compact(List<Command> group) {
+        Deque<Command> stack = new ArrayDeque<>();
+        for (Command c : group) {
+            Command merged = stack.isEmpty() ? null : stack.peek().mergeWith(c);
+            if (merged == NO_OP) {
+                stack.pop();
+            } else if (merged != null) {
+                stack.pop();
+                stack.push(merged);
+            } else {
+                stack.push(c);
+            }
+        }
+        Command[] result = new Command[stack.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = stack.pop(); // stack top is the newest command
+        }
+        return result;
+    }
+
+    // The receiver all its commands share, or null if they act on several
+    // (CommandExecutor then runs the macro as a barrier across all workers)
+    public Object receiver() {
+        Object shared = null;
+        for (Command c : commands) {
+            Object receiver = c.receiver();
+            if (receiver == null || (shared != null && receiver != shared)) {
+                return null;
+            }
+            shared = receiver;
+        }
+        return shared;
+    }
+
+    public int size() {
+        return commands.length;
+    }
+
+    // For CommandJournal: what execute() ran, and what undo() runs
+    Command[] commands() {
+        return commands.clone();
+    }
+
+    Command[][] undoRecord() {
+        return undoGroups == null ? new Command[0][] : undoGroups;
+    }
 }
 
 // Invoker (button / remote)
+// History is a fixed-size ring: once it holds `depth` commands, pressing
+// another one forgets the oldest, so memory stays bounded however long it runs.
+// press/undo are synchronized, so several threads can share one remote.
+// With compaction on, a command that cancels out or repeats the previous one
+// (e.g. ON then OFF on the same light) is merged into it instead of stored.
 class RemoteControl {
-    private final List<Command> history = new ArrayList<>();
+    private static final int DEFAULT_DEPTH = 100;
+
+    private final Command[] history;
+    private final boolean compact;
+    private int head = 0; // index of the oldest command
+    private int size = 0;
+    private CommandJournal journal; // null = history lives only in memory
+
+    public RemoteControl() {
+        this(DEFAULT_DEPTH, false);
+    }
+
+    public RemoteControl(int depth, boolean compact) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("depth must be > 0: " + depth);
+        }
+        this.history = new Command[depth];
+        this.compact = compact;
+    }
 
-    public void press(Command cmd) {
-        cmd.execute();
-        history.add(cmd); // store it so we can undo later
+    // Also write every press/undo to a journal, so state can be rebuilt after a crash
+    public synchronized void setJournal(CommandJournal journal) {
+        this.journal = journal;
     }
 
-    public void undoLast() {
-        if (history.isEmpty()) {
+    // With a journal: the command is logged before it runs (write-ahead), and one
+    // the journal can't log is rejected before anything changes
+    public synchronized void press(Command cmd) {
+        if (journal != null) {
+            runJournaled(journal.encode(cmd, false), cmd::execute);
+        } else {
+            cmd.execute();
+        }
+        record(cmd); // store it so we can undo later
+    }
+
+    private void runJournaled(CommandJournal.Frame frame, Runnable action) {
+        CommandJournal.Frame before = journal.restore(frame);
+        journal.append(frame); // throws (nothing has run) if the journal is closed or failed
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            // It's in the log but didn't (fully) happen: log the lights' real states
+            try {
+                journal.append(before);
+            } catch (RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private void record(Command cmd) {
+        if (compact && size > 0) {
+            int lastIndex = (head + size - 1) % history.length;
+            Command merged = history[lastIndex].mergeWith(cmd);
+            if (merged == Command.NO_OP) {
+                history[lastIndex] = null; // the two cancel out: keep neither
+                size--;
+                return;
+            }
+            if (merged != null) {
+                history[lastIndex] = merged;
+                return;
+            }
+        }
+        if (size == history.length) {
+            // Full: overwrite the oldest entry
+            history[head] = cmd;
+            head = (head + 1) % history.length;
+        } else {
+            history[(head + size) % history.length] = cmd;
+            size++;
+        }
+    }
+
+    public synchronized void undoLast() {
+        if (size == 0) {
             System.out.println("Nothing to undo");
             return;
         }
-        Command last = history.remove(history.size() - 1);
-        last.undo();
+        int lastIndex = (head + size - 1) % history.length;
+        Command last = history[lastIndex];
+        if (journal != null) {
+            runJournaled(journal.encode(last, true), last::undo);
+        } else {
+            last.undo();
+        }
+        history[lastIndex] = null; // let it be garbage-collected
+        size--;
+    }
+
+    public synchronized int historySize() {
+        return size;
     }
 }
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException, IOException {
         Light light = new Light();
 
         Command on = new LightOnCommand(light);
@@ -97,5 +401,57 @@ public class Main {
         remote.undoLast();  // Undo OFF => Light ON
         remote.undoLast();  // Undo ON  => Light OFF
         remote.undoLast();  // Nothing to undo
+
+        // Bounded + compacting history: keeps at most 3 commands, and
+        // ON/OFF pairs on the same light cancel out instead of piling up
+        System.out.println();
+        RemoteControl compactRemote = new RemoteControl(3, true);
+        for (int i = 0; i < 3; i++) {
+            compactRemote.press(on);
+            compactRemote.press(off);
+        }
+        compactRemote.press(on);
+        System.out.println("History size after 7 presses: " + compactRemote.historySize());
+        compactRemote.undoLast(); // Undo the last ON => Light OFF
+
+        // Macro: "turn off the whole building" is one press and one undo
+        System.out.println();
+        List<Command> allOff = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Light room = new Light();
+            room.on();
+            allOff.add(new LightOffCommand(room));
+        }
+        RemoteControl building = new RemoteControl();
+        building.press(new MacroCommand(allOff, true));
+        System.out.println("History size: " + building.historySize());
+        building.undoLast(); // every light back ON
+
+        // Journal: presses are logged to disk and replayed after a restart
+        System.out.println();
+        Path dir = Files.createTempDirectory("remote");
+        List<Light> house = Arrays.asList(new Light(), new Light());
+        try (CommandJournal journal = CommandJournal.open(dir, house, 10, 1000)) {
+            RemoteControl logged = new RemoteControl();
+            logged.setJournal(journal);
+            logged.press(new LightOnCommand(house.get(0)));
+            logged.press(new LightOnCommand(house.get(1)));
+            logged.undoLast();
+        }
+        List<Light> afterRestart = Arrays.asList(new Light(), new Light());
+        CommandJournal.open(dir, afterRestart, 10, 1000).close();
+        System.out.println("After replay: light 0 ON = " + afterRestart.get(0).isOn()
+                + ", light 1 ON = " + afterRestart.get(1).isOn());
+
+        // Async executor: same light = in order, different lights = in parallel
+        System.out.println();
+        Light kitchen = new Light();
+        CommandExecutor executor = new CommandExecutor(2, 1024);
+        executor.submit(new LightOnCommand(kitchen));
+        CompletableFuture<Void> done = executor.submit(new LightOffCommand(kitchen));
+        done.join(); // wait only if we care about the result
+        executor.shutdown();
+        System.out.println("Executed " + executor.completedCount() + " commands, avg latency "
+                + executor.averageLatencyNanos() / 1000 + " us");
     }
 }
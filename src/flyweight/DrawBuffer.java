@@ -0,0 +1,63 @@
+package flyweight;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Batched output for drawing many trees.
+// TreeType.draw(x, y) does one synchronized System.out.println per tree;
+// here lines are appended to a reusable StringBuilder and written out in
+// large chunks, so the output stream is touched once per chunk, not per tree.
+class DrawBuffer implements Flushable {
+    private static final int DEFAULT_CHUNK_CHARS = 64 * 1024;
+
+    private final Writer out;
+    private final int chunkChars;
+    private final StringBuilder buf;
+
+    public DrawBuffer(OutputStream out) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8), DEFAULT_CHUNK_CHARS);
+    }
+
+    public DrawBuffer(Writer out, int chunkChars) {
+        if (chunkChars <= 0) {
+            throw new IllegalArgumentException("chunkChars must be > 0: " + chunkChars);
+        }
+        this.out = out;
+        this.chunkChars = chunkChars;
+        this.buf = new StringBuilder(chunkChars + 128); // room for one line past the threshold
+    }
+
+    public void draw(TreeType type, int x, int y) {
+        type.render(x, y, buf);
+        if (buf.length() >= chunkChars) {
+            writeChunk();
+        }
+    }
+
+    private void writeChunk() {
+        try {
+            out.append(buf);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buf.setLength(0); // reuse the same buffer for the next chunk
+    }
+
+    // Write whatever is buffered; call once when the frame is done
+    @Override
+    public void flush() {
+        if (buf.length() > 0) {
+            writeChunk();
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
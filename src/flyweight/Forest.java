@@ -0,0 +1,110 @@
+package flyweight;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Forest = many trees stored as "struct of arrays" instead of one Tree object each.
+// Extrinsic state (x, y) lives in parallel int[] arrays, and the shared TreeType
+// is referenced by a 2-byte index into a small flyweight table.
+// Cost per tree: 4 + 4 + 2 = 10 bytes, no object header, no pointer.
+class Forest {
+    // Type indices are stored as short but read back unsigned (0..65535)
+    private static final int MAX_TYPES = 1 << 16;
+
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private short[] typeIndex = new short[16];
+    private int size = 0;
+
+    // Flyweight table: index -> TreeType, plus the reverse lookup used when planting
+    private TreeType[] types = new TreeType[4];
+    private int typeCount = 0;
+    private final Map<TreeType, Integer> indexOf = new IdentityHashMap<>();
+
+    // name -> color -> key, so planting by name allocates a TreeKey once per pair, not per tree
+    private final Map<String, Map<String, TreeKey>> keys = new HashMap<>();
+
+    // Callback for iterating without creating a Tree object per element
+    interface TreeVisitor {
+        void visit(int x, int y, TreeType type);
+    }
+
+    public void plantTree(int x, int y, String name, String color) {
+        Map<String, TreeKey> byColor = keys.computeIfAbsent(name, n -> new HashMap<>());
+        TreeKey key = byColor.get(color);
+        if (key == null) {
+            key = TreeFactory.key(name, color);
+            byColor.put(color, key);
+        }
+        plantTree(x, y, TreeFactory.getTreeType(key));
+    }
+
+    public void plantTree(int x, int y, TreeType type) {
+        if (size == xs.length) {
+            grow();
+        }
+        xs[size] = x;
+        ys[size] = y;
+        typeIndex[size] = (short) indexFor(type);
+        size++;
+    }
+
+    private int indexFor(TreeType type) {
+        Integer index = indexOf.get(type);
+        if (index != null) {
+            return index;
+        }
+        if (typeCount == MAX_TYPES) {
+            throw new IllegalStateException("Forest supports at most " + MAX_TYPES + " tree types");
+        }
+        if (typeCount == types.length) {
+            types = Arrays.copyOf(types, types.length * 2);
+        }
+        types[typeCount] = type;
+        indexOf.put(type, typeCount);
+        return typeCount++;
+    }
+
+    private void grow() {
+        int newCapacity = xs.length * 2;
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        typeIndex = Arrays.copyOf(typeIndex, newCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int typeCount() {
+        return typeCount;
+    }
+
+    public void forEach(TreeVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.visit(xs[i], ys[i], types[typeIndex[i] & 0xFFFF]);
+        }
+    }
+
+    public void drawAll() {
+        for (int i = 0; i < size; i++) {
+            types[typeIndex[i] & 0xFFFF].draw(xs[i], ys[i]);
+        }
+    }
+
+    // Batched variant for large forests: output goes out in big chunks
+    public void drawAll(DrawBuffer out) {
+        for (int i = 0; i < size; i++) {
+            out.draw(types[typeIndex[i] & 0xFFFF], xs[i], ys[i]);
+        }
+    }
+
+    // Bytes used by per-tree data (capacity, not just size): 10 bytes per slot
+    public long extrinsicBytes() {
+        return (long) xs.length * Integer.BYTES
+                + (long) ys.length * Integer.BYTES
+                + (long) typeIndex.length * Short.BYTES;
+    }
+}
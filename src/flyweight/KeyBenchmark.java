@@ -0,0 +1,74 @@
+package flyweight;
+
+import java.lang.management.ManagementFactory;
+
+// Micro-benchmark: TreeFactory.getTreeType(name, color) vs getTreeType(TreeKey).
+// Same factory, same hit-only workload; the first builds a TreeKey per call,
+// the second reuses keys built once with TreeFactory.key().
+// Reports ns per lookup and bytes allocated per lookup (HotSpot only).
+//
+// Plain warm-up + timing loop (no JMH in this repo), so treat the numbers
+// as a rough comparison, not an absolute measurement.
+public class KeyBenchmark {
+    private static final String[] NAMES = {"Oak", "Pine", "Birch", "Maple"};
+    private static final String[] COLORS = {"Green", "DarkGreen", "White", "Red"};
+    private static final int LOOKUPS = 20_000_000;
+
+    public static void main(String[] args) {
+        TreeKey[] keys = new TreeKey[NAMES.length * COLORS.length];
+
+        int k = 0;
+        for (String name : NAMES) {
+            for (String color : COLORS) {
+                keys[k++] = TreeFactory.key(name, color);
+                TreeFactory.getTreeType(name, color); // populate: every timed lookup is a hit
+            }
+        }
+
+        // warm-up so both loops are JIT-compiled before we measure
+        for (int i = 0; i < 3; i++) {
+            nameColorLoop();
+            treeKeyLoop(keys);
+        }
+
+        report("getTreeType(String,String)", KeyBenchmark::nameColorLoop);
+        report("getTreeType(TreeKey)", () -> treeKeyLoop(keys));
+    }
+
+    private static int nameColorLoop() {
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            String name = NAMES[i & 3];
+            String color = COLORS[(i >>> 2) & 3];
+            if (TreeFactory.getTreeType(name, color) != null) found++;
+        }
+        return found;
+    }
+
+    private static int treeKeyLoop(TreeKey[] keys) {
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (TreeFactory.getTreeType(keys[i & 15]) != null) found++;
+        }
+        return found;
+    }
+
+    private static void report(String label, java.util.function.IntSupplier loop) {
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        int found = loop.getAsInt();
+        long elapsed = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+
+        System.out.printf("%-28s %6.2f ns/lookup  %6.2f bytes/lookup  (hits=%d)%n",
+                label, (double) elapsed / LOOKUPS, (double) bytes / LOOKUPS, found);
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -1,7 +1,13 @@
 package flyweight;
 
-import java.util.HashMap;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 // Flyweight Pattern = share common object data to reduce memory usage.
 // Intrinsic (shared): type, color, texture
@@ -21,27 +27,196 @@ class TreeType {
         // x,y are EXTRINSIC (passed each time)
         System.out.println("Draw " + name + " (" + color + ") at (" + x + "," + y + ")");
     }
+
+    // Batch draw: many positions for this one type, written through a DrawBuffer
+    public void drawBatch(int[] xs, int[] ys, int count, DrawBuffer out) {
+        for (int i = 0; i < count; i++) {
+            out.draw(this, xs[i], ys[i]);
+        }
+    }
+
+    // Same line as draw(), appended to a buffer (no String built per tree)
+    void render(int x, int y, StringBuilder out) {
+        out.append("Draw ").append(name).append(" (").append(color).append(") at (")
+                .append(x).append(',').append(y).append(")\n");
+    }
+}
+
+// Cache key for the flyweight table: (name, color) with the hash computed once.
+// Build a key once (TreeFactory.key) and reuse it, and lookups allocate nothing.
+final class TreeKey {
+    final String name;
+    final String color;
+    private final int hash;
+
+    TreeKey(String name, String color) {
+        this.name = name;
+        this.color = color;
+        this.hash = 31 * name.hashCode() + color.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TreeKey)) return false;
+        TreeKey other = (TreeKey) o;
+        return hash == other.hash && name.equals(other.name) && color.equals(other.color);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name + "|" + color;
+    }
 }
 
 // Flyweight Factory (cache)
+// Thread-safe: the cache is split into lock-striped segments, so render
+// threads asking for different keys rarely contend on the same lock.
+// Optionally bounded by a global count of cached types: a miss that takes the
+// cache over the bound evicts the least-recently-used entry of its own segment
+// (each segment is an access-ordered LinkedHashMap), or of another segment if
+// its own holds nothing else. LRU order is per segment, so eviction is approximate LRU.
 class TreeFactory {
-    private static final Map<String, TreeType> cache = new HashMap<>();
+    private static final int SEGMENTS = 16;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final LinkedHashMap<TreeKey, TreeType>[] segments = new LinkedHashMap[SEGMENTS];
+
+    // 0 = unbounded, otherwise the max number of cached types (across all segments)
+    private static volatile int maxSize = 0;
+    private static final AtomicInteger cachedCount = new AtomicInteger(); // entries in all segments
+    private static final AtomicInteger evictCursor = new AtomicInteger(); // spreads fallback evictions
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+
+    static {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = newSegment();
+        }
+    }
+
+    private static LinkedHashMap<TreeKey, TreeType> newSegment() {
+        // accessOrder = true -> iteration order is least-recently-used first
+        return new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // Caller holds the segment's lock
+    private static void evictEldest(LinkedHashMap<TreeKey, TreeType> segment) {
+        Iterator<Map.Entry<TreeKey, TreeType>> it = segment.entrySet().iterator();
+        it.next();
+        it.remove();
+        cachedCount.decrementAndGet();
+        evictions.increment();
+    }
+
+    // Over the bound but the segment we inserted into holds only the new entry:
+    // evict from the other segments, one lock at a time (never two at once)
+    private static void evictElsewhere(LinkedHashMap<TreeKey, TreeType> own) {
+        int start = evictCursor.getAndIncrement();
+        for (int i = 0; i < SEGMENTS; i++) {
+            int limit = maxSize;
+            if (limit == 0 || cachedCount.get() <= limit) {
+                return;
+            }
+            LinkedHashMap<TreeKey, TreeType> segment = segments[(start + i) & (SEGMENTS - 1)];
+            if (segment == own) {
+                continue;
+            }
+            synchronized (segment) {
+                if (!segment.isEmpty() && cachedCount.get() > maxSize) {
+                    evictEldest(segment);
+                }
+            }
+        }
+    }
 
+    private static LinkedHashMap<TreeKey, TreeType> segmentFor(TreeKey key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16); // spread high bits so similar keys land in different segments
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    // Precompute a key for a (name, color) pair you look up often
+    public static TreeKey key(String name, String color) {
+        return new TreeKey(name, color);
+    }
+
+    // Convenience lookup: builds a TreeKey on every call, so hot loops should use key()
     public static TreeType getTreeType(String name, String color) {
-        String key = name + "|" + color;
+        return getTreeType(new TreeKey(name, color));
+    }
+
+    // Allocation-free on a hit: no key String is built, the hash is already cached
+    public static TreeType getTreeType(TreeKey key) {
+        LinkedHashMap<TreeKey, TreeType> segment = segmentFor(key);
+        TreeType type;
 
-        // Create once, reuse many times
-        if (!cache.containsKey(key)) {
-            cache.put(key, new TreeType(name, color));
+        synchronized (segment) {
+            // Single lookup on the fast path: one get() decides hit or miss
+            type = segment.get(key);
+            if (type != null) {
+                hits.increment();
+                return type;
+            }
+
+            // Create once, reuse many times (creation happens under the segment
+            // lock, so concurrent callers never see two different instances)
+            misses.increment();
+            type = new TreeType(key.name, key.color);
+            segment.put(key, type);
             System.out.println("Created new TreeType: " + key);
+
+            int count = cachedCount.incrementAndGet();
+            int limit = maxSize;
+            if (limit == 0 || count <= limit) {
+                return type;
+            }
+            if (segment.size() > 1) {
+                evictEldest(segment); // the new entry is the most recent, so it stays
+                return type;
+            }
         }
+        evictElsewhere(segment);
+        return type;
+    }
 
-        return cache.get(key);
+    // Bound the cache to at most maxSize types (0 = unbounded). Concurrent misses
+    // can overshoot by one entry each until their eviction runs.
+    // Changing the bound clears the cache so every segment starts consistent.
+    public static void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be >= 0: " + maxSize);
+        }
+        TreeFactory.maxSize = maxSize;
+        for (LinkedHashMap<TreeKey, TreeType> segment : segments) {
+            synchronized (segment) {
+                cachedCount.addAndGet(-segment.size());
+                segment.clear();
+            }
+        }
     }
 
     public static int cachedTypesCount() {
-        return cache.size();
+        int count = 0;
+        for (LinkedHashMap<TreeKey, TreeType> segment : segments) {
+            synchronized (segment) {
+                count += segment.size();
+            }
+        }
+        return count;
     }
+
+    // Metrics (use these to size the cache: lots of evictions + misses = too small)
+    public static long hitCount() { return hits.sum(); }
+    public static long missCount() { return misses.sum(); }
+    public static long evictionCount() { return evictions.sum(); }
 }
 
 // Context (has extrinsic data)
@@ -56,9 +231,16 @@ class Tree {
         this.type = type;
     }
 
+    public int getX() { return x; }
+    public int getY() { return y; }
+
     public void draw() {
         type.draw(x, y);
     }
+
+    public void draw(DrawBuffer out) {
+        out.draw(type, x, y);
+    }
 }
 
 public class Main {
@@ -69,11 +251,50 @@ public class Main {
         Tree t3 = new Tree(50, 60, TreeFactory.getTreeType("Pine", "DarkGreen"));
         Tree t4 = new Tree(70, 80, TreeFactory.getTreeType("Oak", "Green"));
 
-        System.out.println("\nCached TreeTypes = " + TreeFactory.cachedTypesCount() + "\n");
+        // Hot path: build the key once, then every lookup is allocation-free
+        TreeKey birch = TreeFactory.key("Birch", "White");
+        Tree t5 = new Tree(90, 15, TreeFactory.getTreeType(birch));
+        Tree t6 = new Tree(91, 16, TreeFactory.getTreeType(birch));
+
+        System.out.println("\nCached TreeTypes = " + TreeFactory.cachedTypesCount());
+        System.out.println("Cache hits = " + TreeFactory.hitCount()
+                + ", misses = " + TreeFactory.missCount()
+                + ", evictions = " + TreeFactory.evictionCount() + "\n");
 
         t1.draw();
         t2.draw();
         t3.draw();
         t4.draw();
+        t5.draw();
+        t6.draw();
+
+        // Large scenes: store trees as parallel arrays instead of Tree objects
+        Forest forest = new Forest();
+        for (int i = 0; i < 1_000_000; i++) {
+            forest.plantTree(i % 1000, i / 1000, i % 3 == 0 ? "Pine" : "Oak", i % 3 == 0 ? "DarkGreen" : "Green");
+        }
+        System.out.println("\nForest: " + forest.size() + " trees, "
+                + forest.typeCount() + " tree types, "
+                + forest.extrinsicBytes() / 1024 + " KB of per-tree data");
+
+        // Batched output: one write per 64 KB chunk instead of one println per tree
+        DrawBuffer out = new DrawBuffer(System.out);
+        int[] xs = {1, 2, 3};
+        int[] ys = {4, 5, 6};
+        TreeFactory.getTreeType(birch).drawBatch(xs, ys, xs.length, out);
+        t1.draw(out);
+        out.flush();
+
+        // Spatial grid: draw only what's inside the viewport, tiles in parallel
+        List<Tree> scene = new ArrayList<>();
+        for (int x = 0; x < 500; x++) {
+            for (int y = 0; y < 500; y++) {
+                scene.add(new Tree(x * 10, y * 10, TreeFactory.getTreeType(x % 2 == 0 ? "Oak" : "Pine", x % 2 == 0 ? "Green" : "DarkGreen")));
+            }
+        }
+        SpatialGrid grid = new SpatialGrid(scene, 100);
+        System.out.println("\nVisible in viewport (0,0)-(20,20): " + grid.query(0, 0, 20, 20).size()
+                + " of " + scene.size() + " trees");
+        grid.drawVisible(0, 0, 20, 20, new PrintWriter(System.out));
     }
 }
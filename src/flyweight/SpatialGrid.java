@@ -0,0 +1,144 @@
+package flyweight;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Uniform grid over tree positions.
+// The world is cut into square cells of cellSize; each cell keeps the trees inside it.
+// Only occupied cells are stored (a hash keyed by packed col/row), so memory grows
+// with the number of trees, not with the area they're spread over.
+// A viewport query only looks at the cells it overlaps, so the work depends on
+// how many trees are visible, not on how many trees exist.
+// Drawing splits the visible cells across a fork/join pool (one task per group of tiles).
+class SpatialGrid {
+    // Split work until a task owns at most this many cells
+    private static final int CELLS_PER_TASK = 4;
+
+    private final int cellSize;
+    private final Map<Long, Tree[]> cells = new HashMap<>(); // key(col, row) -> trees in that cell
+
+    public SpatialGrid(Collection<Tree> trees, int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be > 0: " + cellSize);
+        }
+        this.cellSize = cellSize;
+
+        // Bucket trees per cell, then freeze each bucket into a compact array
+        Map<Long, List<Tree>> buckets = new HashMap<>();
+        for (Tree t : trees) {
+            long key = key(Math.floorDiv(t.getX(), cellSize), Math.floorDiv(t.getY(), cellSize));
+            buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(t);
+        }
+        for (Map.Entry<Long, List<Tree>> e : buckets.entrySet()) {
+            cells.put(e.getKey(), e.getValue().toArray(new Tree[0]));
+        }
+    }
+
+    private static long key(int col, int row) {
+        return ((long) col << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    // Occupied cells overlapping the viewport (bounds are inclusive)
+    private Tree[][] cellsOverlapping(int minX, int minY, int maxX, int maxY) {
+        if (minX > maxX || minY > maxY) {
+            return new Tree[0][];
+        }
+        int c0 = Math.floorDiv(minX, cellSize), c1 = Math.floorDiv(maxX, cellSize);
+        int r0 = Math.floorDiv(minY, cellSize), r1 = Math.floorDiv(maxY, cellSize);
+
+        List<Tree[]> result = new ArrayList<>();
+        long viewportCells = ((long) c1 - c0 + 1) * ((long) r1 - r0 + 1);
+        if (viewportCells > cells.size()) {
+            // Viewport spans more cells than are occupied: scan the occupied ones instead
+            for (Map.Entry<Long, Tree[]> e : cells.entrySet()) {
+                int col = (int) (e.getKey() >> 32), row = (int) (long) e.getKey();
+                if (col >= c0 && col <= c1 && row >= r0 && row <= r1) {
+                    result.add(e.getValue());
+                }
+            }
+        } else {
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    Tree[] cell = cells.get(key(c, r));
+                    if (cell != null) {
+                        result.add(cell);
+                    }
+                }
+            }
+        }
+        return result.toArray(new Tree[0][]);
+    }
+
+    private static boolean inside(Tree t, int minX, int minY, int maxX, int maxY) {
+        return t.getX() >= minX && t.getX() <= maxX && t.getY() >= minY && t.getY() <= maxY;
+    }
+
+    // Viewport culling: trees whose position lies inside the rectangle
+    public List<Tree> query(int minX, int minY, int maxX, int maxY) {
+        List<Tree> visible = new ArrayList<>();
+        for (Tree[] cell : cellsOverlapping(minX, minY, maxX, maxY)) {
+            for (Tree t : cell) {
+                if (inside(t, minX, minY, maxX, maxY)) {
+                    visible.add(t);
+                }
+            }
+        }
+        return visible;
+    }
+
+    // Draw only the visible trees, tiles rendered in parallel.
+    // Each task batches into its own DrawBuffer; whole chunks are written to `out`,
+    // so lines from different tiles never interleave mid-line (order across tiles is not fixed).
+    public void drawVisible(int minX, int minY, int maxX, int maxY, Writer out) {
+        Tree[][] visibleCells = cellsOverlapping(minX, minY, maxX, maxY);
+        ForkJoinPool.commonPool().invoke(
+                new DrawTilesTask(visibleCells, 0, visibleCells.length, minX, minY, maxX, maxY, out));
+    }
+
+    private static class DrawTilesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Tree[][] visibleCells;
+        private final int from;
+        private final int to;
+        private final int minX, minY, maxX, maxY;
+        private final transient Writer out;
+
+        DrawTilesTask(Tree[][] visibleCells, int from, int to, int minX, int minY, int maxX, int maxY, Writer out) {
+            this.visibleCells = visibleCells;
+            this.from = from;
+            this.to = to;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.out = out;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CELLS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new DrawTilesTask(visibleCells, from, mid, minX, minY, maxX, maxY, out),
+                          new DrawTilesTask(visibleCells, mid, to, minX, minY, maxX, maxY, out));
+                return;
+            }
+
+            DrawBuffer buffer = new DrawBuffer(out, 64 * 1024);
+            for (int i = from; i < to; i++) {
+                for (Tree t : visibleCells[i]) {
+                    if (inside(t, minX, minY, maxX, maxY)) {
+                        t.draw(buffer);
+                    }
+                }
+            }
+            buffer.flush();
+        }
+    }
+}
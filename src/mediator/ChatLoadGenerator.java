@@ -0,0 +1,63 @@
+package mediator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Load generator for ShardedChatMediator:
+// thousands of users spread over many rooms, several threads sending at once.
+// Reports messages delivered per second and p99 send -> delivery latency.
+//
+// Uses quiet users (BasicUser prints every message, which would measure
+// the console instead of the mediator).
+public class ChatLoadGenerator {
+    private static final int LOOPS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int USERS = 5_000;
+    private static final int ROOMS = 100;
+    private static final int SENDER_THREADS = 4;
+    private static final int MESSAGES_PER_THREAD = 25_000;
+
+    static class QuietUser extends User {
+        QuietUser(ChatMediator mediator, String name) {
+            super(mediator, name);
+        }
+
+        public void receive(String message) {
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ShardedChatMediator mediator = new ShardedChatMediator(LOOPS);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User u = new QuietUser(mediator, "user-" + i);
+            mediator.join("room-" + (i % ROOMS), u); // 50 users per room
+            users.add(u);
+        }
+
+        long start = System.nanoTime();
+        Thread[] senders = new Thread[SENDER_THREADS];
+        for (int t = 0; t < SENDER_THREADS; t++) {
+            senders[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int m = 0; m < MESSAGES_PER_THREAD; m++) {
+                    users.get(random.nextInt(USERS)).send("hello " + m);
+                }
+            });
+            senders[t].start();
+        }
+        for (Thread t : senders) {
+            t.join();
+        }
+        mediator.shutdown(); // waits until every queued message is delivered
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long sent = (long) SENDER_THREADS * MESSAGES_PER_THREAD;
+        System.out.printf("%d loops, %,d users, %d rooms%n", LOOPS, USERS, ROOMS);
+        System.out.printf("sent      : %,12.0f messages/s%n", sent / seconds);
+        System.out.printf("delivered : %,12.0f messages/s (%,d deliveries)%n",
+                mediator.deliveredCount() / seconds, mediator.deliveredCount());
+        System.out.printf("latency   : p50 <= %,d us, p99 <= %,d us%n",
+                mediator.latencyPercentileNanos(50) / 1000, mediator.latencyPercentileNanos(99) / 1000);
+    }
+}
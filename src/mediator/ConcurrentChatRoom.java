@@ -0,0 +1,64 @@
+package mediator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Thread-safe mediator for big rooms.
+// - members live in a ConcurrentHashMap: register/unregister are O(1) and
+//   safe to call while messages are being sent
+// - send() walks the map directly (no copy of the member list); it sees a
+//   consistent-enough view: members who join mid-send may or may not get it
+// - rooms with many members are delivered in parallel: the map's forEachKey
+//   splits the members across the common fork/join pool
+class ConcurrentChatRoom implements ChatMediator {
+    // Below this many members, deliver on the sender's thread (splitting costs more than it saves)
+    private static final long PARALLEL_THRESHOLD = 2_048;
+
+    private final ConcurrentHashMap<User, Boolean> members = new ConcurrentHashMap<>();
+
+    // Fan-out metrics: how long a send takes to reach every member
+    private final LongAdder sends = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder totalFanOutNanos = new LongAdder();
+    private final LongAccumulator maxFanOutNanos = new LongAccumulator(Math::max, 0);
+
+    public void register(User user) {
+        members.put(user, Boolean.TRUE);
+    }
+
+    public void unregister(User user) {
+        members.remove(user);
+    }
+
+    public int memberCount() {
+        return members.size();
+    }
+
+    public void send(String message, User from) {
+        long start = System.nanoTime();
+        ChatMessage msg = new ChatMessage(from.getName(), message); // format + encode once
+
+        members.forEachKey(PARALLEL_THRESHOLD, u -> {
+            if (u != from) {
+                u.receive(msg);
+                deliveries.increment();
+            }
+        });
+
+        long nanos = System.nanoTime() - start;
+        sends.increment();
+        totalFanOutNanos.add(nanos);
+        maxFanOutNanos.accumulate(nanos);
+    }
+
+    // Metrics
+    public long sendCount() { return sends.sum(); }
+    public long deliveryCount() { return deliveries.sum(); }
+    public long maxFanOutNanos() { return maxFanOutNanos.get(); }
+
+    public long averageFanOutNanos() {
+        long count = sends.sum();
+        return count == 0 ? 0 : totalFanOutNanos.sum() / count;
+    }
+}
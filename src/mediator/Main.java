@@ -1,7 +1,13 @@
 package mediator;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 // Mediator Pattern = objects communicate through a mediator
 // instead of calling each other directly.
@@ -9,21 +15,111 @@ import java.util.List;
 interface ChatMediator {
     void register(User user);
     void send(String message, User from);
+
+    // Several messages from one sender; mediators may deliver them as one batch
+    default void sendBatch(List<String> messages, User from) {
+        for (String message : messages) {
+            send(message, from);
+        }
+    }
+}
+
+// A message as recipients see it: formatted once ("name: text") and UTF-8
+// encoded once, then the same immutable object is handed to every recipient
+final class ChatMessage {
+    private final String line;
+    private final byte[] utf8;
+
+    ChatMessage(String sender, String text) {
+        this(sender + ": " + text);
+    }
+
+    private ChatMessage(String line) {
+        this.line = line;
+        this.utf8 = line.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Rebuild a message from its encoded bytes (e.g. from an offline mailbox)
+    static ChatMessage decode(byte[] utf8) {
+        return new ChatMessage(new String(utf8, StandardCharsets.UTF_8));
+    }
+
+    public String line() {
+        return line;
+    }
+
+    // Encoded bytes for writing to a socket/file (read-only view, no copy)
+    public ByteBuffer payload() {
+        return ByteBuffer.wrap(utf8).asReadOnlyBuffer();
+    }
+
+    public int sizeInBytes() {
+        return utf8.length;
+    }
 }
 
 // Concrete Mediator
 class ChatRoom implements ChatMediator {
     private final List<User> users = new ArrayList<>();
+    private final Set<User> offline = new HashSet<>();
+    private OfflineMailboxes mailboxes; // null = offline users just miss messages
 
     public void register(User user) {
         users.add(user);
     }
 
+    // Keep up to bytesPerUser of missed messages for each offline member
+    public void enableMailboxes(int bytesPerUser) {
+        mailboxes = new OfflineMailboxes(bytesPerUser);
+    }
+
+    public void disconnect(User user) {
+        offline.add(user);
+    }
+
+    // Back online: the backlog arrives as one receiveBatch() call
+    public void reconnect(User user) {
+        offline.remove(user);
+        if (mailboxes != null) {
+            mailboxes.deliver(user);
+        }
+    }
+
+    private void deliver(User u, ChatMessage msg) {
+        if (!offline.contains(u)) {
+            u.receive(msg);
+        } else if (mailboxes != null) {
+            mailboxes.append(u, msg);
+        }
+    }
+
     public void send(String message, User from) {
+        ChatMessage msg = new ChatMessage(from.getName(), message); // format + encode once
         // deliver message to everyone except sender
         for (User u : users) {
             if (u != from) {
-                u.receive(from.getName() + ": " + message);
+                deliver(u, msg);
+            }
+        }
+    }
+
+    // One receiveBatch() call per recipient instead of one receive() per message
+    public void sendBatch(List<String> messages, User from) {
+        List<ChatMessage> batch = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            batch.add(new ChatMessage(from.getName(), message));
+        }
+        batch = Collections.unmodifiableList(batch);
+        for (User u : users) {
+            if (u == from) {
+                continue;
+            }
+            if (!offline.contains(u)) {
+                u.receiveBatch(batch);
+            } else {
+                for (ChatMessage msg : batch) {
+                    deliver(u, msg);
+                }
             }
         }
     }
@@ -46,6 +142,19 @@ abstract class User {
     }
 
     public abstract void receive(String message);
+
+    // Mediators deliver pre-formatted messages; override to use the encoded
+    // payload directly (e.g. write it to a socket) instead of the String
+    public void receive(ChatMessage message) {
+        receive(message.line());
+    }
+
+    // Override to handle many messages in one go (one DB write, one network flush, ...)
+    public void receiveBatch(List<ChatMessage> messages) {
+        for (ChatMessage m : messages) {
+            receive(m);
+        }
+    }
 }
 
 // Concrete Colleague
@@ -60,7 +169,7 @@ class BasicUser extends User {
 }
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         ChatMediator room = new ChatRoom();
 
         User mohit = new BasicUser(room, "Mohit");
@@ -73,5 +182,59 @@ public class Main {
 
         mohit.send("Hi everyone!");
         aman.send("Yo Mohit!");
+
+        // Big rooms: thread-safe mediator, parallel delivery past ~2k members
+        ConcurrentChatRoom lobby = new ConcurrentChatRoom();
+        User host = new BasicUser(lobby, "Host");
+        lobby.register(host);
+        for (int i = 0; i < 10_000; i++) {
+            lobby.register(new User(lobby, "guest-" + i) {
+                public void receive(String message) { } // quiet listener
+            });
+        }
+        host.send("Welcome, everyone!");
+        System.out.println("\nLobby: " + lobby.memberCount() + " members, "
+                + lobby.deliveryCount() + " deliveries, fan-out took "
+                + lobby.averageFanOutNanos() / 1000 + " us");
+
+        // Many rooms: each room lives on one event-loop thread
+        ShardedChatMediator server = new ShardedChatMediator(2);
+        User alice = new BasicUser(server, "Alice");
+        User bob = new BasicUser(server, "Bob");
+        User carol = new BasicUser(server, "Carol");
+        server.join("java", alice);
+        server.join("java", bob);
+        server.join("music", carol);
+        server.join("music", alice);
+
+        System.out.println();
+        alice.send("Hi from both my rooms!"); // goes to "java" and "music"
+        server.shutdown();
+
+        // Batches: formatted/encoded once, one receiveBatch() per recipient
+        ChatRoom team = new ChatRoom();
+        User lead = new BasicUser(team, "Lead");
+        User gateway = new User(team, "Gateway") {
+            public void receive(String message) { }
+
+            public void receiveBatch(List<ChatMessage> messages) {
+                int bytes = 0;
+                for (ChatMessage m : messages) {
+                    bytes += m.payload().remaining(); // would be written to the wire as-is
+                }
+                System.out.println(name + " forwarded " + messages.size() + " messages (" + bytes + " bytes) in one batch");
+            }
+        };
+        team.register(lead);
+        team.register(gateway);
+        System.out.println();
+        team.sendBatch(Arrays.asList("Standup in 5", "Bring coffee", "Ship it"), lead);
+
+        // Offline mailboxes: missed messages are kept and replayed on reconnect
+        team.enableMailboxes(4096);
+        team.disconnect(gateway);
+        lead.send("Anyone there?");
+        lead.send("Deploy finished");
+        team.reconnect(gateway);
     }
 }
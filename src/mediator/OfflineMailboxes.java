@@ -0,0 +1,146 @@
+package mediator;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Store-and-forward for members who are offline.
+// Each offline user gets a fixed-size byte ring holding the encoded messages
+// they missed (4-byte length + UTF-8 bytes each, no object per message).
+// When the ring is full the oldest messages are dropped. On reconnect the
+// whole backlog is handed over in one receiveBatch() call and the ring is freed.
+class OfflineMailboxes {
+    private final int bytesPerUser;
+    private final Map<User, ByteRing> mailboxes = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+
+    public OfflineMailboxes(int bytesPerUser) {
+        if (bytesPerUser < 64) {
+            throw new IllegalArgumentException("bytesPerUser must be >= 64: " + bytesPerUser);
+        }
+        this.bytesPerUser = bytesPerUser;
+    }
+
+    public void append(User user, ChatMessage message) {
+        while (true) {
+            ByteRing ring = mailboxes.computeIfAbsent(user, u -> new ByteRing(bytesPerUser));
+            synchronized (ring) {
+                if (!ring.closed) {
+                    ring.append(message.payload());
+                    return;
+                }
+            }
+            // Lost a race with deliver(): that ring is gone, start a fresh one
+        }
+    }
+
+    // Deliver everything stored for this user (if anything) in one batch
+    public void deliver(User user) {
+        ByteRing ring = mailboxes.remove(user);
+        if (ring == null) {
+            return;
+        }
+        List<ChatMessage> backlog;
+        synchronized (ring) {
+            ring.closed = true; // late appends go to a new ring instead of being lost
+            backlog = ring.drain();
+        }
+        if (!backlog.isEmpty()) {
+            user.receiveBatch(backlog);
+        }
+    }
+
+    public int pendingCount(User user) {
+        ByteRing ring = mailboxes.get(user);
+        if (ring == null) return 0;
+        synchronized (ring) {
+            return ring.count;
+        }
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    // Circular byte buffer of length-prefixed records
+    private final class ByteRing {
+        private final byte[] buf;
+        private int head = 0;  // oldest record starts here
+        private int used = 0;  // bytes in use
+        private int count = 0; // records stored
+        private boolean closed = false;
+
+        ByteRing(int capacity) {
+            this.buf = new byte[capacity];
+        }
+
+        void append(ByteBuffer record) {
+            int length = record.remaining();
+            int need = 4 + length;
+            if (need > buf.length) {
+                dropped.increment(); // bigger than the whole mailbox
+                return;
+            }
+            while (buf.length - used < need) {
+                dropOldest();
+            }
+            int tail = (head + used) % buf.length;
+            writeInt(tail, length);
+            write((tail + 4) % buf.length, record);
+            used += need;
+            count++;
+        }
+
+        private void dropOldest() {
+            int length = readInt(head);
+            head = (head + 4 + length) % buf.length;
+            used -= 4 + length;
+            count--;
+            dropped.increment();
+        }
+
+        List<ChatMessage> drain() {
+            List<ChatMessage> messages = new ArrayList<>(count);
+            while (count > 0) {
+                int length = readInt(head);
+                byte[] record = new byte[length];
+                read((head + 4) % buf.length, record);
+                messages.add(ChatMessage.decode(record));
+                head = (head + 4 + length) % buf.length;
+                used -= 4 + length;
+                count--;
+            }
+            return messages;
+        }
+
+        private void writeInt(int pos, int value) {
+            for (int i = 0; i < 4; i++) {
+                buf[(pos + i) % buf.length] = (byte) (value >>> (24 - 8 * i));
+            }
+        }
+
+        private int readInt(int pos) {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | (buf[(pos + i) % buf.length] & 0xFF);
+            }
+            return value;
+        }
+
+        // Copy in at most two pieces (before and after the wrap-around point)
+        private void write(int pos, ByteBuffer src) {
+            int first = Math.min(src.remaining(), buf.length - pos);
+            src.get(buf, pos, first);
+            src.get(buf, 0, src.remaining());
+        }
+
+        private void read(int pos, byte[] dst) {
+            int first = Math.min(dst.length, buf.length - pos);
+            System.arraycopy(buf, pos, dst, 0, first);
+            System.arraycopy(buf, 0, dst, first, dst.length - first);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package mediator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Mediator for many rooms, spread over N event-loop threads.
+// Every room belongs to exactly one loop (by hash of its name), and only that
+// loop's thread ever touches the room's member list -- single writer, no locks.
+// Callers never deliver anything themselves: join/leave/send just put a task on
+// the owning loop's queue, so rooms on different loops run on different cores.
+class ShardedChatMediator implements ChatMediator {
+    public static final String LOBBY = "lobby";
+
+    private final EventLoop[] loops;
+
+    // Which rooms each user is in (read by senders on any thread)
+    private final Map<User, Set<String>> roomsByUser = new ConcurrentHashMap<>();
+
+    public ShardedChatMediator(int loopCount) {
+        if (loopCount <= 0) {
+            throw new IllegalArgumentException("loopCount must be > 0: " + loopCount);
+        }
+        loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop("chat-loop-" + i);
+            loops[i].thread.start();
+        }
+    }
+
+    private EventLoop loopFor(String room) {
+        int h = room.hashCode();
+        return loops[Math.floorMod(h ^ (h >>> 16), loops.length)];
+    }
+
+    // ChatMediator: plain register() puts the user in the lobby
+    public void register(User user) {
+        join(LOBBY, user);
+    }
+
+    public void join(String room, User user) {
+        roomsByUser.computeIfAbsent(user, u -> ConcurrentHashMap.newKeySet()).add(room);
+        EventLoop loop = loopFor(room);
+        loop.post(() -> loop.rooms.computeIfAbsent(room, r -> new LinkedHashSet<>()).add(user)); // joining twice = once
+    }
+
+    public void leave(String room, User user) {
+        Set<String> rooms = roomsByUser.get(user);
+        if (rooms != null) {
+            rooms.remove(room);
+        }
+        EventLoop loop = loopFor(room);
+        loop.post(() -> {
+            Set<User> members = loop.rooms.get(room);
+            if (members != null) {
+                members.remove(user);
+            }
+        });
+    }
+
+    // Sends to every room the user has joined (formatted once for all of them)
+    public void send(String message, User from) {
+        ChatMessage msg = new ChatMessage(from.getName(), message);
+        Set<String> rooms = roomsByUser.getOrDefault(from, Collections.emptySet());
+        for (String room : rooms) {
+            post(room, msg, from);
+        }
+    }
+
+    public void send(String room, String message, User from) {
+        post(room, new ChatMessage(from.getName(), message), from);
+    }
+
+    private void post(String room, ChatMessage msg, User from) {
+        long enqueuedAt = System.nanoTime();
+        EventLoop loop = loopFor(room);
+        loop.post(() -> loop.deliver(room, msg, from, enqueuedAt));
+    }
+
+    // Finish everything already queued, then stop the loop threads
+    public void shutdown() throws InterruptedException {
+        for (EventLoop loop : loops) {
+            loop.post(loop::stop);
+        }
+        for (EventLoop loop : loops) {
+            loop.thread.join();
+        }
+    }
+
+    // Metrics
+    public long deliveredCount() {
+        long total = 0;
+        for (EventLoop loop : loops) total += loop.delivered.sum();
+        return total;
+    }
+
+    // Deliveries (or other loop tasks) that threw; the loop keeps going
+    public long failedCount() {
+        long total = 0;
+        for (EventLoop loop : loops) total += loop.failed.sum();
+        return total;
+    }
+
+    // Approximate send -> delivered-to-room latency percentile (upper bound of its
+    // power-of-two bucket). Exact after shutdown(); approximate while running.
+    public long latencyPercentileNanos(double percentile) {
+        long[] merged = new long[64];
+        long total = 0;
+        for (EventLoop loop : loops) {
+            for (int i = 0; i < 64; i++) {
+                merged[i] += loop.latencyBuckets[i];
+                total += loop.latencyBuckets[i];
+            }
+        }
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < 64; i++) {
+            seen += merged[i];
+            if (seen >= target && seen > 0) return 1L << (i + 1);
+        }
+        return 0;
+    }
+
+    private static final class EventLoop implements Runnable {
+        private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        private final Thread thread;
+        private boolean running = true; // only touched by the loop thread
+
+        // Room state: owned by this loop's thread only, so plain collections are fine.
+        // Members in join order; a Set so it agrees with roomsByUser.
+        private final Map<String, Set<User>> rooms = new HashMap<>();
+
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final long[] latencyBuckets = new long[64]; // written by the loop thread only
+
+        EventLoop(String name) {
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        void post(Runnable task) {
+            queue.add(task);
+        }
+
+        void stop() {
+            running = false;
+        }
+
+        void deliver(String room, ChatMessage msg, User from, long enqueuedAt) {
+            Set<User> members = rooms.get(room);
+            if (members != null) {
+                int count = 0;
+                for (User u : members) {
+                    if (u != from) {
+                        try {
+                            u.receive(msg);
+                            count++;
+                        } catch (RuntimeException e) {
+                            failed.increment(); // one bad receiver must not cost the others the message
+                        }
+                    }
+                }
+                delivered.add(count);
+            }
+            long nanos = System.nanoTime() - enqueuedAt;
+            latencyBuckets[63 - Long.numberOfLeadingZeros(Math.max(nanos, 1))]++;
+        }
+
+        @Override
+        public void run() {
+            List<Runnable> batch = new ArrayList<>();
+            while (running) {
+                try {
+                    batch.add(queue.take()); // wait for work...
+                } catch (InterruptedException e) {
+                    return;
+                }
+                queue.drainTo(batch);        // ...then grab everything else queued
+                for (Runnable task : batch) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        failed.increment(); // keep the loop alive: every room on it depends on this thread
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+}
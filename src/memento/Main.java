@@ -1,41 +1,143 @@
 package memento;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 
 // Memento Pattern = capture and restore an object's internal state
 // without exposing its internals to other classes.
 
+// One change to the text: at `position`, remove `deleted` chars, then insert `inserted`
+final class Edit {
+    final int position;
+    final int deleted;
+    final String inserted;
+
+    Edit(int position, int deleted, String inserted) {
+        this.position = position;
+        this.deleted = deleted;
+        this.inserted = inserted;
+    }
+
+    void applyTo(StringBuilder text) {
+        text.replace(position, position + deleted, inserted);
+    }
+}
+
 // Memento (snapshot object)
+// Most mementos don't copy the text: they store only the edits made since the
+// previous memento (a delta). Every N-th save stores the full text (a
+// checkpoint), so rebuilding a snapshot never replays more than N deltas.
+// Memory grows with the size of the edits, not with the size of the document.
 class EditorMemento {
-    private final String text;
+    private final EditorMemento previous; // what the edits apply to (null for checkpoints)
+    private final String fullText;        // only set for checkpoints
+    private final Edit[] edits;           // only set for deltas
+    private final int depth;              // number of deltas since the last checkpoint
+
+    private EditorMemento(EditorMemento previous, String fullText, Edit[] edits, int depth) {
+        this.previous = previous;
+        this.fullText = fullText;
+        this.edits = edits;
+        this.depth = depth;
+    }
+
+    static EditorMemento checkpoint(String text) {
+        return new EditorMemento(null, text, null, 0);
+    }
 
-    public EditorMemento(String text) {
-        this.text = text;
+    static EditorMemento delta(EditorMemento previous, List<Edit> edits) {
+        return new EditorMemento(previous, null, edits.toArray(new Edit[0]), previous.depth + 1);
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    // Rebuild this snapshot's text: start from the checkpoint, replay deltas forward
+    void rebuildInto(StringBuilder out) {
+        EditorMemento[] chain = new EditorMemento[depth + 1];
+        EditorMemento m = this;
+        for (int i = depth; i >= 0; i--) {
+            chain[i] = m;
+            m = m.previous;
+        }
+        out.setLength(0);
+        out.append(chain[0].fullText);
+        for (int i = 1; i < chain.length; i++) {
+            for (Edit e : chain[i].edits) {
+                e.applyTo(out);
+            }
+        }
     }
 
     public String getText() {
-        return text;
+        StringBuilder text = new StringBuilder();
+        rebuildInto(text);
+        return text.toString();
     }
 }
 
 // Originator (the object whose state we save/restore)
+// Text lives in a StringBuilder (type() appends in place instead of copying the
+// whole string), and every change is also recorded as an Edit so save() can
+// produce a delta memento.
 class TextEditor {
-    private String text = "";
+    private static final int DEFAULT_CHECKPOINT_EVERY = 50;
+
+    private final StringBuilder text = new StringBuilder();
+    private final int checkpointEvery;
+    private final List<Edit> pending = new ArrayList<>(); // edits since `last`
+    private EditorMemento last;                            // state last saved or restored
+
+    public TextEditor() {
+        this(DEFAULT_CHECKPOINT_EVERY);
+    }
+
+    // Store the full text every `checkpointEvery` saves, deltas in between
+    public TextEditor(int checkpointEvery) {
+        if (checkpointEvery <= 0) {
+            throw new IllegalArgumentException("checkpointEvery must be > 0: " + checkpointEvery);
+        }
+        this.checkpointEvery = checkpointEvery;
+    }
 
     public void type(String newText) {
-        text += newText;
+        insert(text.length(), newText);
+    }
+
+    public void insert(int position, String newText) {
+        text.insert(position, newText);
+        pending.add(new Edit(position, 0, newText));
+    }
+
+    public void delete(int start, int end) {
+        text.delete(start, end);
+        pending.add(new Edit(start, end - start, ""));
     }
 
     public String getText() {
-        return text;
+        return text.toString();
     }
 
     public EditorMemento save() {
-        return new EditorMemento(text);
+        EditorMemento m;
+        if (last == null || last.depth() + 1 >= checkpointEvery) {
+            m = EditorMemento.checkpoint(text.toString());
+        } else if (pending.isEmpty()) {
+            return last; // nothing changed since the last snapshot
+        } else {
+            m = EditorMemento.delta(last, pending);
+        }
+        pending.clear();
+        last = m;
+        return m;
     }
 
     public void restore(EditorMemento memento) {
-        this.text = memento.getText();
+        memento.rebuildInto(text);
+        pending.clear();
+        last = memento; // later saves are deltas against the restored state
     }
 }
 
@@ -87,5 +189,21 @@ public class Main {
         EditorMemento m3 = history.pop();
         editor.restore(m3);
         System.out.println("Text: " + editor.getText());
+
+        // Big document: 1000 small edits on a ~1 MB text, saving after each one.
+        // Full copies would keep ~1 GB of snapshots; deltas keep a few checkpoints.
+        TextEditor big = new TextEditor(100);
+        History bigHistory = new History();
+        big.type("x".repeat(1_000_000));
+        for (int i = 0; i < 1000; i++) {
+            bigHistory.push(big.save());
+            big.type(" edit" + i);
+        }
+        big.delete(0, 10);
+        for (int i = 0; i < 500; i++) {
+            big.restore(bigHistory.pop());
+        }
+        System.out.println("\nBig document after 500 undos: " + big.getText().length() + " chars, ends with '"
+                + big.getText().substring(big.getText().length() - 8) + "'");
     }
 }
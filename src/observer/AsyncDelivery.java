@@ -0,0 +1,199 @@
+package observer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// What to do when a subscriber's queue is full
+enum BackpressurePolicy {
+    BLOCK,        // publisher waits until the subscriber catches up
+    DROP_OLDEST,  // throw away the oldest pending update to make room
+    DROP_NEWEST   // throw away the update being published
+}
+
+// Asynchronous fan-out: instead of calling update() on the publisher's thread,
+// each subscriber gets its own bounded queue (mailbox) that is drained on an
+// executor. A slow subscriber only fills its own queue; the upload call and
+// the other subscribers keep going. Updates to one subscriber stay in order
+// because at most one drain task per mailbox runs at a time.
+//
+// Mailboxes are created by register() (Channel calls it on subscribe), never by
+// deliver(): a notify still walking an old snapshot may deliver to a subscriber
+// that was just removed, and that must not bring its mailbox back. A mailbox
+// removed while it's draining stays as a closed tombstone until its drain task
+// ends; re-registering reopens the same mailbox, so there's still one drainer.
+class AsyncDelivery {
+    private final Executor executor;
+    private final int queueCapacity;
+    private final BackpressurePolicy policy;
+    private final Map<Subscriber, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejectedDrains = new LongAdder(); // executor refused a drain task
+
+    public AsyncDelivery(Executor executor, int queueCapacity, BackpressurePolicy policy) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be > 0: " + queueCapacity);
+        }
+        this.executor = executor;
+        this.queueCapacity = queueCapacity;
+        this.policy = policy;
+    }
+
+    private static final class Notification {
+        final String channelName;
+        final String videoTitle;
+        final List<String> videoTitles; // non-null = one updateBatch() for a BatchSubscriber
+
+        Notification(String channelName, String videoTitle, List<String> videoTitles) {
+            this.channelName = channelName;
+            this.videoTitle = videoTitle;
+            this.videoTitles = videoTitles;
+        }
+    }
+
+    private final class Mailbox implements Runnable {
+        private final Subscriber subscriber;
+        private final BlockingQueue<Notification> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private volatile boolean closed = false; // unsubscribed: stop draining, accept nothing
+
+        Mailbox(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(Notification n) {
+            switch (policy) {
+                case BLOCK:
+                    try {
+                        // Not put(): if the executor rejected our drain task, nothing would
+                        // ever make room, so keep retrying the drain while we wait
+                        while (!queue.offer(n, 10, TimeUnit.MILLISECONDS)) {
+                            if (closed) {
+                                return;
+                            }
+                            scheduleDrain();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped.increment();
+                        return;
+                    }
+                    break;
+                case DROP_OLDEST:
+                    while (!queue.offer(n)) {
+                        if (queue.poll() != null) {
+                            dropped.increment();
+                        }
+                    }
+                    break;
+                case DROP_NEWEST:
+                    if (!queue.offer(n)) {
+                        dropped.increment();
+                        return;
+                    }
+                    break;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            // Only one drain task per mailbox at a time (keeps updates in order)
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // Pool saturated or shut down: updates stay queued, the next offer retries
+                    scheduled.set(false);
+                    rejectedDrains.increment();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            Notification n;
+            while (!closed && (n = queue.poll()) != null) {
+                try {
+                    if (n.videoTitles != null) {
+                        ((BatchSubscriber) subscriber).updateBatch(n.channelName, n.videoTitles);
+                    } else {
+                        subscriber.update(n.channelName, n.videoTitle);
+                    }
+                } catch (RuntimeException e) {
+                    failed.increment(); // one bad update must not stall the mailbox
+                }
+            }
+            scheduled.set(false);
+            if (closed) {
+                // Removed while we were draining: drop the tombstone (unless it was re-registered)
+                mailboxes.computeIfPresent(subscriber, (k, box) -> box == this && box.closed ? null : box);
+            } else if (!queue.isEmpty()) {
+                // An update may have arrived after the last poll() but before we cleared the flag
+                scheduleDrain();
+            }
+        }
+    }
+
+    // Give `s` a mailbox (Channel calls this on subscribe). Idempotent.
+    public void register(Subscriber s) {
+        mailboxes.compute(s, (k, box) -> {
+            if (box == null) {
+                return new Mailbox(s);
+            }
+            box.closed = false; // re-subscribed before its old drain finished: reuse it
+            return box;
+        });
+    }
+
+    // Updates for unregistered (or removed) subscribers are dropped
+    public void deliver(Subscriber s, String channelName, String videoTitle) {
+        Mailbox box = mailboxes.get(s);
+        if (box != null && !box.closed) {
+            box.offer(new Notification(channelName, videoTitle, null));
+        }
+    }
+
+    // A whole batch as one mailbox entry: one updateBatch() call, in order with s's other updates
+    public void deliverBatch(BatchSubscriber s, String channelName, List<String> videoTitles) {
+        Mailbox box = mailboxes.get(s);
+        if (box != null && !box.closed) {
+            box.offer(new Notification(channelName, null, videoTitles));
+        }
+    }
+
+    // Called on unsubscribe so idle mailboxes don't pile up (pending updates are discarded)
+    public void remove(Subscriber s) {
+        mailboxes.computeIfPresent(s, (k, box) -> {
+            box.closed = true;
+            box.queue.clear();
+            return box.scheduled.get() ? box : null; // draining: its drain task removes it
+        });
+    }
+
+    // Metrics
+    public int queueDepth(Subscriber s) {
+        Mailbox box = mailboxes.get(s);
+        return box == null ? 0 : box.queue.size();
+    }
+
+    public int totalQueueDepth() {
+        int total = 0;
+        for (Mailbox box : mailboxes.values()) {
+            total += box.queue.size();
+        }
+        return total;
+    }
+
+    public long droppedCount() { return dropped.sum(); }
+    public long failedCount() { return failed.sum(); }
+    public long rejectedDrainCount() { return rejectedDrains.sum(); }
+}
@@ -0,0 +1,96 @@
+package observer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Coalescing window: collects titles and hands them over as one batch when
+// either maxBatchSize titles have piled up (count based) or maxDelay has passed
+// since the first title of the batch arrived (time based), whichever is first.
+//
+// Count-triggered batches go out on the publisher's thread, time-triggered ones
+// on the scheduler's. Delivery is serialized (one batch at a time, in the order
+// the batches were cut), so a subscriber never sees two updateBatch() calls at once.
+class BatchWindow {
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService scheduler;
+    private final Consumer<List<String>> onFlush;
+
+    private List<String> pending = new ArrayList<>(); // guarded by "this"
+    private ScheduledFuture<?> timer;                  // guarded by "this"
+    private final Deque<List<String>> ready = new ArrayDeque<>(); // cut, not yet delivered (guarded by "this")
+
+    // Held while delivering; taken before "this"
+    private final Object deliveryLock = new Object();
+
+    public BatchWindow(int maxBatchSize, long maxDelay, TimeUnit unit,
+                       ScheduledExecutorService scheduler, Consumer<List<String>> onFlush) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be > 0: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.scheduler = scheduler;
+        this.onFlush = onFlush;
+    }
+
+    public void add(String title) {
+        boolean full;
+        synchronized (this) {
+            pending.add(title);
+            full = pending.size() >= maxBatchSize;
+            if (full) {
+                ready.add(takePending());
+            } else if (pending.size() == 1) {
+                // First title of a new batch starts the clock
+                timer = scheduler.schedule(this::flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        // Not under "this": other publishers can keep adding while this batch goes out
+        if (full) {
+            deliverReady();
+        }
+    }
+
+    // Deliver whatever is pending now (also called by the timer)
+    public void flush() {
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                ready.add(takePending());
+            }
+        }
+        deliverReady();
+    }
+
+    // Whoever holds deliveryLock delivers every ready batch, oldest first
+    private void deliverReady() {
+        synchronized (deliveryLock) {
+            while (true) {
+                List<String> batch;
+                synchronized (this) {
+                    batch = ready.poll();
+                }
+                if (batch == null) {
+                    return;
+                }
+                onFlush.accept(batch);
+            }
+        }
+    }
+
+    private List<String> takePending() {
+        List<String> batch = pending;
+        pending = new ArrayList<>();
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,276 @@
+package observer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Event bus for many channels and many subscribers.
+// - each Subscriber is registered once and gets a small int id; unregister()
+//   frees the id for reuse, so churn doesn't grow the id table forever.
+//   subscribe() only accepts currently registered ids, so a stale id handle
+//   can't subscribe the id's next owner to anything
+// - each channel (topic) keeps its subscribers as a primitive int hash set,
+//   so subscribe/unsubscribe are O(1) and there's no per-entry object
+// - topics are spread over lock-striped shards, so work on different
+//   channels rarely contends on the same lock
+// - publishing to a big channel fans out in parallel on the common fork/join pool
+class EventBus {
+    private static final int SHARDS = 64;
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
+    private final Shard[] shards = new Shard[SHARDS];
+
+    // id -> subscriber (grows by doubling; writes under registryLock).
+    // Lock order: a shard lock may be held while taking registryLock, never the reverse.
+    private final Object registryLock = new Object();
+    private volatile Subscriber[] subscribersById = new Subscriber[1024];
+    private Set<String>[] channelsById = newChannelTable(1024); // reverse index (guarded by registryLock)
+    private int nextId = 0;                // guarded by registryLock
+    private int[] freeIds = new int[16];   // stack of unregistered ids (guarded by registryLock)
+    private int freeCount = 0;             // guarded by registryLock
+
+    private static final class Shard {
+        final Map<String, IntHashSet> topics = new HashMap<>(); // guarded by this shard
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String>[] newChannelTable(int size) {
+        return (Set<String>[]) new Set<?>[size];
+    }
+
+    public EventBus() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    public int register(Subscriber s) {
+        synchronized (registryLock) {
+            Subscriber[] table = subscribersById;
+            int id;
+            if (freeCount > 0) {
+                id = freeIds[--freeCount]; // reuse a freed id before growing the table
+            } else {
+                id = nextId++;
+                if (id == table.length) {
+                    table = Arrays.copyOf(table, table.length * 2);
+                    channelsById = Arrays.copyOf(channelsById, table.length);
+                }
+            }
+            table[id] = s;
+            channelsById[id] = null; // created on first subscribe
+            subscribersById = table; // volatile write publishes the new slot
+            return id;
+        }
+    }
+
+    // Drop the subscriber from the channels it joined and free its id for reuse.
+    // Cost is one O(1) removal per channel this subscriber is in.
+    public void unregister(int subscriberId) {
+        Set<String> channels;
+        synchronized (registryLock) {
+            Subscriber[] table = subscribersById;
+            if (!isRegistered(subscriberId)) {
+                return; // unknown or already unregistered
+            }
+            // Clear the slot first: from here on subscribe() rejects this id, so the
+            // channel list below can't grow behind our back
+            table[subscriberId] = null; // let the Subscriber be garbage-collected
+            subscribersById = table;
+            channels = channelsById[subscriberId];
+            channelsById[subscriberId] = null;
+        }
+        // Out of its channels before the id can be reused. A subscribe() that passed
+        // its check holds the shard lock until its add is done, so we see that add.
+        if (channels != null) {
+            for (String channel : channels) {
+                Shard shard = shardFor(channel);
+                synchronized (shard) {
+                    IntHashSet ids = shard.topics.get(channel);
+                    if (ids != null && ids.remove(subscriberId) && ids.size() == 0) {
+                        shard.topics.remove(channel);
+                    }
+                }
+            }
+        }
+        synchronized (registryLock) {
+            if (freeCount == freeIds.length) {
+                freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+            }
+            freeIds[freeCount++] = subscriberId;
+        }
+    }
+
+    // Called with registryLock held
+    private boolean isRegistered(int subscriberId) {
+        return subscriberId >= 0 && subscriberId < nextId && subscribersById[subscriberId] != null;
+    }
+
+    private Shard shardFor(String channel) {
+        int h = channel.hashCode();
+        return shards[(h ^ (h >>> 16)) & (SHARDS - 1)];
+    }
+
+    // Throws IllegalArgumentException if the id isn't currently registered
+    // (e.g. a stale handle to an id that was unregistered and maybe reused)
+    public void subscribe(String channel, int subscriberId) {
+        Shard shard = shardFor(channel);
+        synchronized (shard) {
+            synchronized (registryLock) {
+                if (!isRegistered(subscriberId)) {
+                    throw new IllegalArgumentException("Subscriber id is not registered: " + subscriberId);
+                }
+                Set<String> channels = channelsById[subscriberId];
+                if (channels == null) {
+                    channels = new HashSet<>(4);
+                    channelsById[subscriberId] = channels;
+                }
+                channels.add(channel);
+            }
+            shard.topics.computeIfAbsent(channel, c -> new IntHashSet()).add(subscriberId);
+        }
+    }
+
+    public void unsubscribe(String channel, int subscriberId) {
+        Shard shard = shardFor(channel);
+        synchronized (shard) {
+            IntHashSet ids = shard.topics.get(channel);
+            if (ids != null && ids.remove(subscriberId) && ids.size() == 0) {
+                shard.topics.remove(channel); // don't keep empty channels around
+            }
+            synchronized (registryLock) {
+                Set<String> channels = isRegistered(subscriberId) ? channelsById[subscriberId] : null;
+                if (channels != null) {
+                    channels.remove(channel);
+                }
+            }
+        }
+    }
+
+    public int subscriberCount(String channel) {
+        Shard shard = shardFor(channel);
+        synchronized (shard) {
+            IntHashSet ids = shard.topics.get(channel);
+            return ids == null ? 0 : ids.size();
+        }
+    }
+
+    public void publish(String channel, String videoTitle) {
+        // Resolve ids to subscribers under the lock, deliver outside it, so slow
+        // subscribers never block subscribe/unsubscribe on this shard. Resolving
+        // under the lock matters: unregister() removes an id from this channel
+        // (under this lock) before the id can be reused by someone else.
+        Subscriber[] targets;
+        Shard shard = shardFor(channel);
+        synchronized (shard) {
+            IntHashSet set = shard.topics.get(channel);
+            if (set == null) {
+                return;
+            }
+            int[] ids = set.toArray();
+            Subscriber[] table = subscribersById;
+            targets = new Subscriber[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                targets[i] = ids[i] < table.length ? table[ids[i]] : null;
+            }
+        }
+
+        if (targets.length >= PARALLEL_THRESHOLD) {
+            Arrays.stream(targets).parallel().forEach(s -> {
+                if (s != null) s.update(channel, videoTitle);
+            });
+        } else {
+            for (Subscriber s : targets) {
+                if (s != null) { // unregistered since this channel's ids were read
+                    s.update(channel, videoTitle);
+                }
+            }
+        }
+    }
+
+    // Open-addressing hash set of non-negative ints (linear probing, no boxing).
+    // Removal shifts later entries back instead of leaving tombstones.
+    static final class IntHashSet {
+        private static final int EMPTY = -1;
+
+        private int[] slots = newTable(8);
+        private int size = 0;
+
+        private static int[] newTable(int capacity) {
+            int[] table = new int[capacity];
+            Arrays.fill(table, EMPTY);
+            return table;
+        }
+
+        private static int indexFor(int value, int mask) {
+            int h = value * 0x9E3779B9; // scramble sequential ids
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        boolean add(int value) {
+            if ((size + 1) * 2 > slots.length) {
+                resize(slots.length * 2); // keep load factor <= 0.5
+            }
+            int mask = slots.length - 1;
+            int i = indexFor(value, mask);
+            while (slots[i] != EMPTY) {
+                if (slots[i] == value) return false;
+                i = (i + 1) & mask;
+            }
+            slots[i] = value;
+            size++;
+            return true;
+        }
+
+        boolean remove(int value) {
+            int mask = slots.length - 1;
+            int i = indexFor(value, mask);
+            while (slots[i] != value) {
+                if (slots[i] == EMPTY) return false;
+                i = (i + 1) & mask;
+            }
+            slots[i] = EMPTY;
+            size--;
+
+            // Backward-shift: move following entries into the hole if that
+            // brings them closer to their home slot, so lookups stay correct
+            int hole = i;
+            int j = (i + 1) & mask;
+            while (slots[j] != EMPTY) {
+                int home = indexFor(slots[j], mask);
+                boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+                if (movable) {
+                    slots[hole] = slots[j];
+                    slots[j] = EMPTY;
+                    hole = j;
+                }
+                j = (j + 1) & mask;
+            }
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            int[] result = new int[size];
+            int n = 0;
+            for (int v : slots) {
+                if (v != EMPTY) result[n++] = v;
+            }
+            return result;
+        }
+
+        private void resize(int capacity) {
+            int[] old = slots;
+            slots = newTable(capacity);
+            size = 0;
+            for (int v : old) {
+                if (v != EMPTY) add(v);
+            }
+        }
+    }
+}
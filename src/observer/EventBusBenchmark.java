@@ -0,0 +1,71 @@
+package observer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// EventBus at scale: 1M subscribers, 1M subscriptions.
+// - 100k channels with 9 subscribers each (the "long tail")
+// - 1 hot channel with 100k subscribers (parallel fan-out)
+// Reports subscribe/unsubscribe cost and publish latency.
+//
+// Plain timing (no JMH in this repo): numbers are rough and machine dependent.
+public class EventBusBenchmark {
+    private static final int SUBSCRIBERS = 1_000_000;
+    private static final int CHANNELS = 100_000;
+    private static final int HOT_SUBSCRIBERS = 100_000;
+
+    public static void main(String[] args) {
+        EventBus bus = new EventBus();
+        LongAdder delivered = new LongAdder();
+        Subscriber counter = (channelName, videoTitle) -> delivered.increment();
+
+        long start = System.nanoTime();
+        int[] ids = new int[SUBSCRIBERS];
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            ids[i] = bus.register(counter);
+        }
+        long registerNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < SUBSCRIBERS - HOT_SUBSCRIBERS; i++) {
+            bus.subscribe("channel-" + (i % CHANNELS), ids[i]);
+        }
+        for (int i = SUBSCRIBERS - HOT_SUBSCRIBERS; i < SUBSCRIBERS; i++) {
+            bus.subscribe("hot", ids[i]);
+        }
+        long subscribeNanos = System.nanoTime() - start;
+
+        System.out.printf("register    : %6.1f ns/subscriber%n", (double) registerNanos / SUBSCRIBERS);
+        System.out.printf("subscribe   : %6.1f ns/subscription (%,d total)%n",
+                (double) subscribeNanos / SUBSCRIBERS, SUBSCRIBERS);
+
+        // Small channels: sequential fan-out
+        for (int round = 0; round < 2; round++) { // first round is warm-up
+            start = System.nanoTime();
+            for (int c = 0; c < CHANNELS; c++) {
+                bus.publish("channel-" + c, "video");
+            }
+            if (round == 1) {
+                System.out.printf("publish     : %6.1f us/channel (%d subscribers each)%n",
+                        (System.nanoTime() - start) / 1e3 / CHANNELS, (SUBSCRIBERS - HOT_SUBSCRIBERS) / CHANNELS);
+            }
+        }
+
+        // Hot channel: parallel fan-out
+        for (int round = 0; round < 5; round++) {
+            start = System.nanoTime();
+            bus.publish("hot", "video");
+            if (round == 4) {
+                System.out.printf("publish hot : %6.2f ms (%,d subscribers)%n",
+                        (System.nanoTime() - start) / 1e6, bus.subscriberCount("hot"));
+            }
+        }
+
+        start = System.nanoTime();
+        for (int i = SUBSCRIBERS - HOT_SUBSCRIBERS; i < SUBSCRIBERS; i++) {
+            bus.unsubscribe("hot", ids[i]);
+        }
+        System.out.printf("unsubscribe : %6.1f ns/subscription%n",
+                (double) (System.nanoTime() - start) / HOT_SUBSCRIBERS);
+        System.out.printf("%ndelivered %,d updates%n", delivered.sum());
+    }
+}
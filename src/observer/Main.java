@@ -1,13 +1,30 @@
 package observer;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 // Observer = gets notified when subject updates
 interface Subscriber {
     void update(String channelName, String videoTitle);
 }
 
+// Observer that prefers updates in bulk (e.g. writes to a database or network):
+// it gets one updateBatch() per coalescing window instead of one update() per video
+interface BatchSubscriber extends Subscriber {
+    void updateBatch(String channelName, List<String> videoTitles);
+
+    default void update(String channelName, String videoTitle) {
+        updateBatch(channelName, Collections.singletonList(videoTitle));
+    }
+}
+
 // Concrete Observer
 class UserSubscriber implements Subscriber {
     private final String name;
@@ -23,20 +40,116 @@ class UserSubscriber implements Subscriber {
 }
 
 // Subject = the thing being observed
+// Thread-safe: subscribers live in a copy-on-write array. subscribe/unsubscribe
+// copy the array (rare, cheap for small lists) and are serialized on `this`;
+// notify iterates a snapshot with no locking, so subscriptions can change while
+// a notification is going out.
 class Channel {
     private final String name;
-    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private volatile AsyncDelivery asyncDelivery; // null = call update() synchronously
+    private volatile BatchWindow batchWindow;     // null = BatchSubscribers get every update
+
+    // Gauges for weak subscriptions
+    private final AtomicInteger liveWeakSubscribers = new AtomicInteger();
+    private final LongAdder reclaimedWeakSubscribers = new LongAdder();
 
     public Channel(String name) {
         this.name = name;
     }
 
-    public void subscribe(Subscriber s) {
+    public synchronized void subscribe(Subscriber s) {
         subscribers.add(s);
+        registerAsync(s);
+    }
+
+    // Subscribe without keeping `s` alive: once nothing else references it,
+    // it is garbage-collected and dropped from this channel automatically
+    public synchronized void subscribeWeakly(Subscriber s) {
+        WeakSubscription weak = WeakSubscription.of(s, this);
+        subscribers.add(weak);
+        liveWeakSubscribers.incrementAndGet();
+        registerAsync(weak);
+    }
+
+    // Caller holds the lock, so this can't interleave with setAsyncDelivery()
+    private void registerAsync(Subscriber s) {
+        AsyncDelivery async = asyncDelivery;
+        if (async != null) {
+            async.register(s);
+        }
+    }
+
+    // Removes one subscription. The same subscriber may be subscribed more than
+    // once; its mailbox stays open until the last of those is gone.
+    public synchronized void unsubscribe(Subscriber s) {
+        Subscriber removed = null;
+        if (subscribers.remove(s)) {
+            removed = s;
+        } else {
+            // Maybe it was subscribed weakly: find its wrapper
+            for (Subscriber x : subscribers) {
+                if (x instanceof WeakSubscription && ((WeakSubscription) x).get() == s) {
+                    if (subscribers.remove(x)) {
+                        ((WeakSubscription) x).clear(); // cleared refs are never enqueued
+                        liveWeakSubscribers.decrementAndGet();
+                        removed = x;
+                    }
+                    break;
+                }
+            }
+        }
+        AsyncDelivery async = asyncDelivery;
+        if (async != null && removed != null && !subscribers.contains(removed)) {
+            async.remove(removed);
+        }
+    }
+
+    // Called by the WeakSubscription cleaner thread after the GC collected a subscriber
+    synchronized void reclaim(WeakSubscription dead) {
+        if (subscribers.remove(dead)) {
+            liveWeakSubscribers.decrementAndGet();
+            reclaimedWeakSubscribers.increment();
+            AsyncDelivery async = asyncDelivery;
+            if (async != null) {
+                async.remove(dead);
+            }
+        }
+    }
+
+    public int liveWeakSubscriberCount() { return liveWeakSubscribers.get(); }
+    public long reclaimedWeakSubscriberCount() { return reclaimedWeakSubscribers.sum(); }
+
+    // Switch to queued delivery on an executor (null switches back to synchronous)
+    public synchronized void setAsyncDelivery(AsyncDelivery asyncDelivery) {
+        this.asyncDelivery = asyncDelivery;
+        if (asyncDelivery != null) {
+            for (Subscriber s : subscribers) {
+                asyncDelivery.register(s);
+            }
+        }
     }
 
-    public void unsubscribe(Subscriber s) {
-        subscribers.remove(s);
+    // Coalesce uploads for BatchSubscribers: they get one updateBatch() per
+    // maxBatchSize uploads or per maxDelay, whichever comes first.
+    // Plain subscribers keep getting one update() per upload.
+    // With async delivery on, batches go through the subscriber's mailbox too.
+    // Calling it again replaces the window; titles pending in the old one are delivered.
+    public synchronized void enableBatching(int maxBatchSize, long maxDelay, TimeUnit unit,
+                                            ScheduledExecutorService scheduler) {
+        BatchWindow old = batchWindow;
+        batchWindow = new BatchWindow(maxBatchSize, maxDelay, unit, scheduler, this::notifyBatch);
+        if (old != null) {
+            old.flush();
+        }
+    }
+
+    // Deliver any titles still waiting in the batch window
+    public void flushBatch() {
+        BatchWindow window = batchWindow;
+        if (window != null) {
+            window.flush();
+        }
     }
 
     // When something happens, notify everyone
@@ -45,15 +158,48 @@ class Channel {
         notifySubscribers(title);
     }
 
-    private void notifySubscribers(String videoTitle) {
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Package-private so benchmarks can notify without the upload log line
+    void notifySubscribers(String videoTitle) {
+        // Iterates the array as it was when the loop started (never throws
+        // ConcurrentModificationException, sees no half-applied changes)
+        AsyncDelivery async = asyncDelivery;
+        BatchWindow window = batchWindow;
+        if (window != null) {
+            window.add(videoTitle);
+        }
+        for (Subscriber s : subscribers) {
+            if (window != null && s instanceof BatchSubscriber) {
+                continue; // gets this title in its next batch
+            }
+            if (async != null) {
+                async.deliver(s, name, videoTitle);
+            } else {
+                s.update(name, videoTitle);
+            }
+        }
+    }
+
+    private void notifyBatch(List<String> videoTitles) {
+        List<String> batch = Collections.unmodifiableList(videoTitles);
+        AsyncDelivery async = asyncDelivery;
         for (Subscriber s : subscribers) {
-            s.update(name, videoTitle);
+            if (s instanceof BatchSubscriber) {
+                if (async != null) {
+                    async.deliverBatch((BatchSubscriber) s, name, batch);
+                } else {
+                    ((BatchSubscriber) s).updateBatch(name, batch);
+                }
+            }
         }
     }
 }
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         Channel ch = new Channel("Mohit Tech");
 
         Subscriber a = new UserSubscriber("Aman");
@@ -70,5 +216,60 @@ public class Main {
         ch.unsubscribe(b);
 
         ch.uploadVideo("Factory vs Builder explained");
+
+        // Async delivery: uploadVideo returns right away, updates run on a pool
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        AsyncDelivery async = new AsyncDelivery(pool, 100, BackpressurePolicy.DROP_OLDEST);
+        ch.setAsyncDelivery(async);
+
+        ch.uploadVideo("Async observers");
+
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+        System.out.println("Pending = " + async.totalQueueDepth() + ", dropped = " + async.droppedCount());
+
+        // Batching: a burst of uploads reaches the batch subscriber as one call
+        Channel busy = new Channel("Daily Clips");
+        busy.subscribe((BatchSubscriber) (channelName, titles) ->
+                System.out.println("Archiver stored " + titles.size() + " videos from " + channelName + ": " + titles));
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        busy.enableBatching(3, 100, TimeUnit.MILLISECONDS, timer);
+
+        for (int i = 1; i <= 4; i++) {
+            busy.uploadVideo("Clip #" + i); // 3 -> one batch, the 4th goes out after 100 ms
+        }
+        Thread.sleep(200);
+        timer.shutdown();
+
+        // Event bus: many channels, subscribers tracked by int id
+        EventBus bus = new EventBus();
+        int amanId = bus.register(a);
+        int jayId = bus.register(c);
+        bus.subscribe("Mohit Tech", amanId);
+        bus.subscribe("Mohit Tech", jayId);
+        bus.subscribe("Daily Clips", jayId);
+        System.out.println();
+        bus.publish("Mohit Tech", "EventBus deep dive");
+        bus.publish("Daily Clips", "Clip #5");
+
+        // Weak subscriptions: forgotten subscribers don't pile up forever
+        Channel news = new Channel("News");
+        for (int i = 0; i < 1000; i++) {
+            news.subscribeWeakly(new UserSubscriber("temp-" + i)); // nobody keeps these
+        }
+        System.gc();
+        Thread.sleep(200); // give the cleaner thread a moment
+        System.out.println("\nWeak subscribers: live = " + news.liveWeakSubscriberCount()
+                + ", reclaimed = " + news.reclaimedWeakSubscriberCount());
+
+        // Ring buffer: uploads go into pre-allocated slots, each subscriber
+        // reads them on its own thread at its own pace
+        RingBufferChannel live = new RingBufferChannel("Live", 1024);
+        live.subscribe(a);
+        live.subscribe(c);
+        live.start();
+        System.out.println();
+        live.uploadVideo("Ring buffer stream");
+        live.stop();
     }
 }
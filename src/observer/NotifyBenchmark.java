@@ -0,0 +1,65 @@
+package observer;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// How fast can Channel notify while other threads subscribe/unsubscribe?
+// For each subscriber count and churn rate, one thread notifies in a loop
+// for a fixed time and we report subscriber updates delivered per second.
+//
+// Plain timing loop (no JMH in this repo): compare rows with each other.
+public class NotifyBenchmark {
+    private static final int[] SUBSCRIBER_COUNTS = {10, 100, 1_000};
+    private static final int[] CHURN_PER_SECOND = {0, 1_000, 100_000};
+    private static final long RUN_NANOS = 300_000_000L;
+
+    // Cheap subscriber: just counts, so we measure the registry, not printing
+    static class CountingSubscriber implements Subscriber {
+        final LongAdder updates = new LongAdder();
+
+        public void update(String channelName, String videoTitle) {
+            updates.increment();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        run(100, 0); // warm-up
+        System.out.printf("%12s %14s %22s%n", "subscribers", "churn ops/s", "updates/s delivered");
+        for (int count : SUBSCRIBER_COUNTS) {
+            for (int churn : CHURN_PER_SECOND) {
+                System.out.printf("%12d %14d %,22.0f%n", count, churn, run(count, churn));
+            }
+        }
+    }
+
+    private static double run(int subscriberCount, int churnPerSecond) throws InterruptedException {
+        Channel channel = new Channel("bench");
+        CountingSubscriber counter = new CountingSubscriber();
+        for (int i = 0; i < subscriberCount; i++) {
+            channel.subscribe(counter);
+        }
+
+        // Churn thread: subscribe + unsubscribe a temporary subscriber at the given rate
+        Thread churner = new Thread(() -> {
+            Subscriber temp = new CountingSubscriber();
+            long pause = churnPerSecond == 0 ? 0 : 1_000_000_000L / churnPerSecond;
+            while (churnPerSecond > 0 && !Thread.currentThread().isInterrupted()) {
+                channel.subscribe(temp);
+                channel.unsubscribe(temp);
+                LockSupport.parkNanos(pause);
+            }
+        });
+        churner.start();
+
+        long start = System.nanoTime();
+        long deadline = start + RUN_NANOS;
+        while (System.nanoTime() < deadline) {
+            channel.notifySubscribers("video");
+        }
+        long elapsed = System.nanoTime() - start;
+
+        churner.interrupt();
+        churner.join();
+        return counter.updates.sum() * 1e9 / elapsed;
+    }
+}
@@ -0,0 +1,99 @@
+package observer;
+
+// Synchronous Channel.notifySubscribers loop vs RingBufferChannel.
+// Same 4 cheap counting subscribers in both; one publisher thread.
+// - throughput: publisher goes flat out, uploads/s it gets through
+// - latency: publisher paced at a fixed rate so the ring never fills;
+//   sync = one notify call reaching every subscriber,
+//   ring = publish -> handled, per subscriber (power-of-two buckets)
+//
+// The ring needs a core per subscriber thread to shine; on small machines
+// the sync loop wins. Plain timing (no JMH in this repo): compare rows only.
+public class RingBufferBenchmark {
+    private static final int SUBSCRIBERS = 4;
+    private static final int EVENTS = 2_000_000;
+    private static final int PACED_EVENTS = 200_000;
+    private static final long PACE_NANOS = 5_000; // 200k uploads/s
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < 2; round++) { // first round is warm-up
+            boolean print = round == 1;
+            syncLoop(EVENTS, 0, print ? "sync loop, flat out" : null);
+            ringBuffer(EVENTS, 0, print ? "ring buffer, flat out" : null);
+            syncLoop(PACED_EVENTS, PACE_NANOS, print ? "sync loop, paced" : null);
+            ringBuffer(PACED_EVENTS, PACE_NANOS, print ? "ring buffer, paced" : null);
+        }
+    }
+
+    private static void syncLoop(int events, long paceNanos, String label) {
+        Channel channel = new Channel("bench");
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            channel.subscribe(new NotifyBenchmark.CountingSubscriber());
+        }
+
+        long[] buckets = new long[64];
+        long start = System.nanoTime();
+        long next = start;
+        for (int i = 0; i < events; i++) {
+            next = pace(next, paceNanos);
+            long t0 = System.nanoTime();
+            channel.notifySubscribers("video");
+            record(buckets, System.nanoTime() - t0);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (label != null) {
+            print(label, events, elapsed, percentile(buckets, 50), percentile(buckets, 99));
+        }
+    }
+
+    private static void ringBuffer(int events, long paceNanos, String label) throws InterruptedException {
+        RingBufferChannel channel = new RingBufferChannel("bench", 1 << 14);
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            channel.subscribe(new NotifyBenchmark.CountingSubscriber());
+        }
+        channel.start();
+
+        long start = System.nanoTime();
+        long next = start;
+        for (int i = 0; i < events; i++) {
+            next = pace(next, paceNanos);
+            channel.uploadVideo("video");
+        }
+        long elapsed = System.nanoTime() - start;
+        channel.stop();
+
+        if (label != null) {
+            print(label, events, elapsed, channel.latencyPercentileNanos(50), channel.latencyPercentileNanos(99));
+        }
+    }
+
+    // Busy-wait until the next send time (0 = don't pace)
+    private static long pace(long next, long paceNanos) {
+        if (paceNanos == 0) return next;
+        while (System.nanoTime() < next) {
+            Thread.onSpinWait();
+        }
+        return next + paceNanos;
+    }
+
+    private static void print(String label, int events, long elapsedNanos, long p50, long p99) {
+        System.out.printf("%-22s %,12.0f uploads/s   p50 <= %,10d ns   p99 <= %,10d ns%n",
+                label, events * 1e9 / elapsedNanos, p50, p99);
+    }
+
+    private static void record(long[] buckets, long nanos) {
+        buckets[63 - Long.numberOfLeadingZeros(Math.max(nanos, 1))]++;
+    }
+
+    private static long percentile(long[] buckets, double p) {
+        long total = 0;
+        for (long b : buckets) total += b;
+        long target = (long) Math.ceil(total * p / 100.0), seen = 0;
+        for (int i = 0; i < 64; i++) {
+            seen += buckets[i];
+            if (seen >= target) return 1L << (i + 1);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,205 @@
+package observer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Disruptor-style channel for very high upload rates.
+// - a fixed ring of pre-allocated VideoEvent slots (no allocation per upload)
+// - publishers claim the next sequence number, fill that slot, then mark it published
+// - every subscriber runs on its own thread with its own cursor (last sequence it handled),
+//   reading events straight out of the ring in order
+// - a publisher that gets a full ring ahead of the slowest subscriber waits for it
+//
+// Subscribers are attached before start(); uploads go out asynchronously.
+// A channel runs once: uploads are only accepted between start() and stop().
+class RingBufferChannel {
+    // One slot in the ring, reused for every lap
+    static final class VideoEvent {
+        String channelName;
+        String videoTitle;
+        long publishedAtNanos;
+    }
+
+    private final String name;
+    private final int mask;
+    private final VideoEvent[] slots;
+    private final AtomicLongArray publishedSeq; // which sequence each slot currently holds
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<Processor> processors = new ArrayList<>();
+    private volatile long cachedMinCursor = -1; // slowest cursor seen last time we checked
+    private boolean started = false;           // guarded by "this"
+    private volatile boolean running = false;  // accepting uploads
+    private volatile boolean halted = false;   // no more uploads can arrive: processors exit once drained
+    private final AtomicInteger activePublishers = new AtomicInteger(); // uploads in progress
+    private final LongAdder failed = new LongAdder(); // updates that threw
+
+    public RingBufferChannel(String name, int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.name = name;
+        this.mask = capacity - 1;
+        this.slots = new VideoEvent[capacity];
+        this.publishedSeq = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new VideoEvent();
+            publishedSeq.set(i, -1);
+        }
+    }
+
+    public synchronized void subscribe(Subscriber s) {
+        if (started) {
+            throw new IllegalStateException("subscribe before start()");
+        }
+        processors.add(new Processor(s));
+    }
+
+    public synchronized void start() {
+        if (started) {
+            throw new IllegalStateException("already started: " + name);
+        }
+        started = true;
+        running = true;
+        for (Processor p : processors) {
+            Thread t = new Thread(p, "ring-" + name + "-" + processors.indexOf(p));
+            t.setDaemon(true);
+            p.thread = t;
+            t.start();
+        }
+    }
+
+    // Let subscribers finish everything published so far, then stop their threads
+    // (a no-op if it isn't running)
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // Uploads that got past the running check still publish; wait for them
+        while (activePublishers.get() != 0) {
+            LockSupport.parkNanos(1_000);
+        }
+        halted = true;
+        for (Processor p : processors) {
+            LockSupport.unpark(p.thread);
+            p.thread.join();
+        }
+    }
+
+    public void uploadVideo(String title) {
+        activePublishers.incrementAndGet(); // before the check, so stop() waits for us
+        try {
+            if (!running) {
+                throw new IllegalStateException("channel is not running: " + name);
+            }
+            publish(title);
+        } finally {
+            activePublishers.decrementAndGet();
+        }
+    }
+
+    private void publish(String title) {
+        long seq = claimed.incrementAndGet();
+        long wrapPoint = seq - slots.length;
+
+        // Ring full: wait until the slowest subscriber has consumed this slot's previous lap
+        if (wrapPoint > cachedMinCursor) {
+            long min;
+            while (wrapPoint > (min = minCursor())) {
+                LockSupport.parkNanos(1_000);
+            }
+            cachedMinCursor = min;
+        }
+
+        VideoEvent e = slots[(int) seq & mask];
+        e.channelName = name;
+        e.videoTitle = title;
+        e.publishedAtNanos = System.nanoTime();
+        publishedSeq.lazySet((int) seq & mask, seq); // release: the fields above are visible first
+    }
+
+    // Approximate latency percentile over all subscribers (upper bound of the
+    // power-of-two bucket it falls in). Call after stop().
+    public synchronized long latencyPercentileNanos(double percentile) {
+        long[] merged = new long[64];
+        long total = 0;
+        for (Processor p : processors) {
+            for (int i = 0; i < 64; i++) {
+                merged[i] += p.latencyBuckets[i];
+                total += p.latencyBuckets[i];
+            }
+        }
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < 64; i++) {
+            seen += merged[i];
+            if (seen >= target && seen > 0) {
+                return i >= 62 ? Long.MAX_VALUE : (1L << (i + 1));
+            }
+        }
+        return 0;
+    }
+
+    public long failedCount() {
+        return failed.sum();
+    }
+
+    private long minCursor() {
+        long min = Long.MAX_VALUE;
+        for (Processor p : processors) {
+            min = Math.min(min, p.cursor.get());
+        }
+        return min == Long.MAX_VALUE ? claimed.get() : min;
+    }
+
+    // One subscriber's consumer loop
+    private final class Processor implements Runnable {
+        private final Subscriber subscriber;
+        private final AtomicLong cursor = new AtomicLong(-1); // last sequence handled
+        private Thread thread;
+
+        // Publish-to-handled latency, bucketed by power of two (bucket i = [2^i, 2^(i+1)) ns).
+        // Written only by this processor's thread; read after stop().
+        private final long[] latencyBuckets = new long[64];
+
+        Processor(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private void recordLatency(long nanos) {
+            latencyBuckets[63 - Long.numberOfLeadingZeros(Math.max(nanos, 1))]++;
+        }
+
+        @Override
+        public void run() {
+            long next = cursor.get() + 1;
+            int idle = 0;
+            while (true) {
+                int index = (int) next & mask;
+                if (publishedSeq.get(index) == next) {
+                    VideoEvent e = slots[index];
+                    try {
+                        subscriber.update(e.channelName, e.videoTitle);
+                    } catch (RuntimeException ex) {
+                        failed.increment(); // a dead processor would stall every publisher once the ring wraps
+                    }
+                    recordLatency(System.nanoTime() - e.publishedAtNanos);
+                    cursor.lazySet(next); // frees the slot for publishers
+                    next++;
+                    idle = 0;
+                } else if (halted && next > claimed.get()) {
+                    return; // stopped and fully drained
+                } else if (++idle < 100) {
+                    Thread.onSpinWait();   // short spin: next event is usually close
+                } else {
+                    LockSupport.parkNanos(10_000);
+                }
+            }
+        }
+    }
+}
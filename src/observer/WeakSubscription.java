@@ -0,0 +1,69 @@
+package observer;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+// Weak subscription: the channel holds the subscriber through a WeakReference,
+// so a subscriber nobody else uses can be garbage-collected even if it never
+// called unsubscribe. Once collected, this wrapper is put on a ReferenceQueue
+// and a background cleaner thread removes it from its channel -- notify never
+// has to scan for dead entries.
+// A BatchSubscriber gets a wrapper that is itself a BatchSubscriber (see of()),
+// so the channel still batches its updates.
+class WeakSubscription extends WeakReference<Subscriber> implements Subscriber {
+    private static final ReferenceQueue<Subscriber> QUEUE = new ReferenceQueue<>();
+
+    static {
+        Thread cleaner = new Thread(WeakSubscription::cleanLoop, "weak-subscriber-cleaner");
+        cleaner.setDaemon(true);
+        cleaner.start();
+    }
+
+    private final Channel channel;
+
+    private WeakSubscription(Subscriber subscriber, Channel channel) {
+        super(subscriber, QUEUE);
+        this.channel = channel;
+    }
+
+    static WeakSubscription of(Subscriber subscriber, Channel channel) {
+        if (subscriber instanceof BatchSubscriber) {
+            return new Batch((BatchSubscriber) subscriber, channel);
+        }
+        return new WeakSubscription(subscriber, channel);
+    }
+
+    @Override
+    public void update(String channelName, String videoTitle) {
+        Subscriber s = get();
+        if (s != null) { // collected but not cleaned up yet -> just skip it
+            s.update(channelName, videoTitle);
+        }
+    }
+
+    private static final class Batch extends WeakSubscription implements BatchSubscriber {
+        Batch(BatchSubscriber subscriber, Channel channel) {
+            super(subscriber, channel);
+        }
+
+        @Override
+        public void updateBatch(String channelName, List<String> videoTitles) {
+            BatchSubscriber s = (BatchSubscriber) get();
+            if (s != null) {
+                s.updateBatch(channelName, videoTitles);
+            }
+        }
+    }
+
+    private static void cleanLoop() {
+        while (true) {
+            try {
+                WeakSubscription dead = (WeakSubscription) QUEUE.remove(); // blocks until GC enqueues one
+                dead.channel.reclaim(dead);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
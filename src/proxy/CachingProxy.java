@@ -0,0 +1,212 @@
+package proxy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Mark interface methods whose result depends only on their arguments
+// (no side effects), so CachingProxy may return a remembered result.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@interface Cacheable {
+}
+
+// How long results stay valid and how many are kept (LRU beyond maxSize)
+final class CachePolicy {
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private CachePolicy(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be > 0: " + maxSize);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive: " + ttl);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public static CachePolicy of(int maxSize, Duration ttl) {
+        return new CachePolicy(maxSize, ttl);
+    }
+
+    public int maxSize() { return maxSize; }
+    public long ttlNanos() { return ttlNanos; }
+}
+
+// Generic caching proxy: put a cache in front of ANY interface without
+// hand-writing a proxy class like ImageProxy.
+//
+//   UserRepository repo = CachingProxy.of(UserRepository.class, realRepo, policy);
+//
+// Built on java.lang.reflect.Proxy: every call goes through invoke(), which
+// serves @Cacheable methods from the cache and passes everything else through.
+class CachingProxy<T> implements InvocationHandler {
+    private final T target;
+    private final CachePolicy policy;
+    private final Map<CallKey, CachedResult> results; // guarded by itself
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private CachingProxy(T target, CachePolicy policy) {
+        this.target = target;
+        this.policy = policy;
+        // accessOrder = true -> the eldest entry is the least recently used one
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CallKey, CachedResult> eldest) {
+                return size() > policy.maxSize();
+            }
+        };
+    }
+
+    public static <T> T of(Class<T> iface, T target, CachePolicy policy) {
+        return iface.cast(Proxy.newProxyInstance(
+                iface.getClassLoader(), new Class<?>[] {iface}, new CachingProxy<>(target, policy)));
+    }
+
+    // Metrics for a proxy created by of()
+    public static long hitCount(Object proxy) { return handlerOf(proxy).hits.sum(); }
+    public static long missCount(Object proxy) { return handlerOf(proxy).misses.sum(); }
+
+    private static CachingProxy<?> handlerOf(Object proxy) {
+        InvocationHandler handler = Proxy.getInvocationHandler(proxy);
+        if (!(handler instanceof CachingProxy)) {
+            throw new IllegalArgumentException("Not a CachingProxy: " + proxy);
+        }
+        return (CachingProxy<?>) handler;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return objectMethod(proxy, method, args);
+        }
+        if (!method.isAnnotationPresent(Cacheable.class)) {
+            return call(method, args);
+        }
+
+        CallKey key = new CallKey(method, args);
+        long now = System.nanoTime();
+        synchronized (results) {
+            CachedResult cached = results.get(key);
+            if (cached != null && now - cached.createdAt < policy.ttlNanos()) {
+                hits.increment();
+                return cached.value;
+            }
+        }
+
+        // Miss (or expired): call the real object outside the lock so a slow
+        // call doesn't block hits for other keys. Exceptions are not cached.
+        misses.increment();
+        // Store a key with its own copy of any array arguments: the caller (or the
+        // target) may change theirs later, and a key must never change once it's in
+        // the map. Copied before the call, while the arrays still match the hash.
+        CallKey stored = key.withCopiedArrays();
+        Object value = call(method, args);
+        synchronized (results) {
+            results.put(stored, new CachedResult(value, now));
+        }
+        return value;
+    }
+
+    // equals/hashCode/toString are about the proxy itself, not forwarded to the
+    // target (otherwise proxy.equals(proxy) would be false)
+    private Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "CachingProxy[" + target + "]";
+            default:
+                throw new IllegalStateException("Unexpected Object method: " + method);
+        }
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause(); // rethrow what the real object threw, not the reflection wrapper
+        }
+    }
+
+    // Method + arguments, compared by value (arrays by content)
+    private static final class CallKey {
+        private final Method method;
+        private final Object[] args;
+        private final int hash;
+
+        CallKey(Method method, Object[] args) {
+            this.method = method;
+            this.args = args == null ? new Object[0] : args;
+            this.hash = 31 * method.hashCode() + Arrays.deepHashCode(this.args);
+        }
+
+        private CallKey(Method method, Object[] args, int hash) {
+            this.method = method;
+            this.args = args;
+            this.hash = hash;
+        }
+
+        // Same key, but owning deep copies of its array arguments (only made on
+        // a miss, so hits never pay for the copy)
+        CallKey withCopiedArrays() {
+            return new CallKey(method, (Object[]) copyArrays(args), hash);
+        }
+
+        private static Object copyArrays(Object value) {
+            if (value == null || !value.getClass().isArray()) {
+                return value;
+            }
+            Class<?> component = value.getClass().getComponentType();
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(component, length);
+            if (component.isPrimitive()) {
+                System.arraycopy(value, 0, copy, 0, length);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    Array.set(copy, i, copyArrays(Array.get(value, i))); // nested arrays too
+                }
+            }
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CallKey)) return false;
+            CallKey other = (CallKey) o;
+            return hash == other.hash && method.equals(other.method) && Arrays.deepEquals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class CachedResult {
+        final Object value; // may be null: a null result is cached too
+        final long createdAt;
+
+        CachedResult(Object value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
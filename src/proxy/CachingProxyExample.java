@@ -0,0 +1,101 @@
+package proxy;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// An expensive service we want to cache without writing a proxy by hand
+interface UserRepository {
+    @Cacheable
+    String find(int id);
+
+    void rename(int id, String name); // has side effects -> never cached
+}
+
+class SlowUserRepository implements UserRepository {
+    public String find(int id) {
+        try {
+            Thread.sleep(50); // pretend this is a database round trip
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "user-" + id;
+    }
+
+    public void rename(int id, String name) {
+        System.out.println("Renamed user " + id + " to " + name);
+    }
+}
+
+// What a code generator would write for UserRepository: a plain class,
+// direct calls, no reflection. Used as the baseline in the benchmark below.
+class HandCachedUserRepository implements UserRepository {
+    private final UserRepository target;
+    private final Map<Integer, String> cache = new HashMap<>();
+
+    HandCachedUserRepository(UserRepository target) {
+        this.target = target;
+    }
+
+    public synchronized String find(int id) {
+        return cache.computeIfAbsent(id, target::find);
+    }
+
+    public void rename(int id, String name) {
+        target.rename(id, name);
+    }
+}
+
+public class CachingProxyExample {
+    private static final int CALLS = 5_000_000;
+
+    public static void main(String[] args) {
+        UserRepository repo = CachingProxy.of(UserRepository.class, new SlowUserRepository(),
+                CachePolicy.of(10_000, Duration.ofMinutes(5)));
+
+        long start = System.nanoTime();
+        repo.find(42); // slow: goes to the real repository
+        long firstMs = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        repo.find(42); // fast: served from the cache
+        long secondUs = (System.nanoTime() - start) / 1_000;
+
+        repo.rename(42, "Mohit"); // not @Cacheable: always passed through
+
+        System.out.println("first find = " + firstMs + " ms, second find = " + secondUs + " us");
+        System.out.println("hits = " + CachingProxy.hitCount(repo) + ", misses = " + CachingProxy.missCount(repo));
+
+        benchmark();
+    }
+
+    // Rough dispatch-overhead comparison on cache hits (same 16 keys, all cached).
+    // Plain timing loop after a warm-up, not JMH, so compare the numbers to each other only.
+    private static void benchmark() {
+        UserRepository reflective = CachingProxy.of(UserRepository.class, new SlowUserRepository(),
+                CachePolicy.of(100, Duration.ofHours(1)));
+        UserRepository handWritten = new HandCachedUserRepository(new SlowUserRepository());
+        for (int id = 0; id < 16; id++) {
+            reflective.find(id);
+            handWritten.find(id);
+        }
+
+        for (int i = 0; i < 3; i++) { // warm-up
+            run(reflective);
+            run(handWritten);
+        }
+        System.out.printf("%nreflect.Proxy : %6.1f ns/call%n", run(reflective));
+        System.out.printf("hand-written  : %6.1f ns/call%n", run(handWritten));
+    }
+
+    private static double run(UserRepository repo) {
+        long start = System.nanoTime();
+        int total = 0;
+        for (int i = 0; i < CALLS; i++) {
+            total += repo.find(i & 15).length();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (total == 0) System.out.println(); // keep the loop from being optimized away
+        return (double) elapsed / CALLS;
+    }
+}
@@ -0,0 +1,227 @@
+package proxy;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide image cache shared by many ImageProxy objects.
+// - keyed by filename, so 1000 proxies for "cat.png" share one RealImage
+// - bounded by total image bytes, least-recently-used images are evicted first
+// - an evicted image is simply loaded again the next time someone displays it
+// - loads are single-flight: concurrent misses for one file wait on one load
+// - prefetch() loads ahead of display() on a small background pool
+class ImageCache {
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final ImageCache SHARED = new ImageCache(DEFAULT_MAX_BYTES);
+
+    private final long maxBytes;
+    private long currentBytes = 0; // guarded by "this"
+    private final LinkedHashMap<String, RealImage> images = new LinkedHashMap<>(16, 0.75f, true); // LRU order
+
+    private static final int PREFETCH_QUEUE_SIZE = 1024;
+    private ExecutorService loader; // guarded by "this", created lazily
+
+    // Loads in progress, so a second caller joins the first load instead of starting another
+    private final Map<String, CompletableFuture<RealImage>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ImageCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public static ImageCache shared() {
+        return SHARED;
+    }
+
+    public RealImage get(String filename) {
+        RealImage image = lookup(filename);
+        if (image != null) {
+            hits.increment();
+            return image;
+        }
+        misses.increment();
+
+        while (true) {
+            CompletableFuture<RealImage> mine = new CompletableFuture<>();
+            CompletableFuture<RealImage> existing = inFlight.putIfAbsent(filename, mine);
+            if (existing == null) {
+                load(filename, mine);
+                return await(mine);
+            }
+            if (existing instanceof Prefetch && ((Prefetch) existing).claim()) {
+                // A prefetch still sitting in the loader queue: take it over and load
+                // it on this thread (its queued task will see it's claimed and skip)
+                load(filename, existing);
+                return await(existing);
+            }
+            try {
+                return await(existing); // someone else (maybe a prefetch) is loading it: wait for that load
+            } catch (CancellationException e) {
+                // That prefetch was cancelled before it ran: load it ourselves
+                inFlight.remove(filename, existing);
+            }
+        }
+    }
+
+    // Start loading in the background so a later display() finds it ready
+    // (or only waits for the rest of the load). Returns the load's future;
+    // an image that's already cached gives a completed future.
+    public CompletableFuture<RealImage> prefetch(String filename) {
+        RealImage image = lookup(filename);
+        if (image != null) {
+            return CompletableFuture.completedFuture(image);
+        }
+        Prefetch mine = new Prefetch();
+        CompletableFuture<RealImage> existing = inFlight.putIfAbsent(filename, mine);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            loaderPool().execute(() -> {
+                if (mine.claim()) {
+                    load(filename, mine);
+                }
+                // else: cancelled, or a get() took it over before we got to it
+            });
+        } catch (RejectedExecutionException e) {
+            // Loader queue is full: skip this prefetch, display() will load on demand
+            if (mine.claim()) {
+                inFlight.remove(filename, mine);
+                mine.cancel(false);
+            }
+        }
+        return mine;
+    }
+
+    public void prefetch(Collection<String> filenames) {
+        for (String filename : filenames) {
+            prefetch(filename);
+        }
+    }
+
+    // Drop a prefetch that hasn't started yet (e.g. the image scrolled out of view).
+    // Returns false if there's nothing to cancel: no prefetch for this file, a load
+    // that's already running (left to finish, its result is still cached), or a
+    // load started by get() (someone is waiting on it).
+    public boolean cancelPrefetch(String filename) {
+        CompletableFuture<RealImage> pending = inFlight.get(filename);
+        if (pending instanceof Prefetch && ((Prefetch) pending).claim()) {
+            inFlight.remove(filename, pending);
+            pending.cancel(false);
+            return true;
+        }
+        return false;
+    }
+
+    // A queued prefetch. Whoever claims it first decides its fate: the loader task
+    // (runs the load), a get() (runs the load on its own thread) or cancelPrefetch()
+    // (cancels it). Only an unclaimed prefetch can be cancelled.
+    private static final class Prefetch extends CompletableFuture<RealImage> {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    // Never throws: the result or the failure goes to `mine`, so a failed prefetch
+    // doesn't blow up on the loader thread
+    private void load(String filename, CompletableFuture<RealImage> mine) {
+        try {
+            // It may have been loaded and published after the caller's lookup()
+            RealImage image = lookup(filename);
+            if (image == null) {
+                image = new RealImage(filename);
+                admit(filename, image);
+            }
+            mine.complete(image);
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+        } finally {
+            inFlight.remove(filename, mine);
+        }
+    }
+
+    // join(), but a failed load throws what the load threw (e.g. UncheckedIOException)
+    // rather than a CompletionException, whether this thread ran the load or waited for it
+    private static RealImage await(CompletableFuture<RealImage> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    // Bounded background loader: a few daemon threads and a bounded queue,
+    // created on first prefetch so caches that never prefetch don't start threads
+    private synchronized ExecutorService loaderPool() {
+        if (loader == null) {
+            int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+            loader = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(PREFETCH_QUEUE_SIZE),
+                    r -> {
+                        Thread t = new Thread(r, "image-prefetch");
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+        return loader;
+    }
+
+    private synchronized RealImage lookup(String filename) {
+        return images.get(filename);
+    }
+
+    private synchronized void admit(String filename, RealImage image) {
+        RealImage previous = images.put(filename, image);
+        if (previous != null) {
+            currentBytes -= previous.sizeInBytes();
+        }
+        currentBytes += image.sizeInBytes();
+
+        // Evict least-recently-used images until we're back under budget.
+        // The image just added is the newest entry, so it's never evicted here
+        // (even if it alone is over the budget).
+        Iterator<Map.Entry<String, RealImage>> it = images.entrySet().iterator();
+        while (currentBytes > maxBytes && images.size() > 1) {
+            Map.Entry<String, RealImage> eldest = it.next();
+            currentBytes -= eldest.getValue().sizeInBytes();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized int size() { return images.size(); }
+    public synchronized long currentBytes() { return currentBytes; }
+    public long maxBytes() { return maxBytes; }
+
+    // Metrics
+    public long hitCount() { return hits.sum(); }
+    public long missCount() { return misses.sum(); }
+    public long evictionCount() { return evictions.sum(); }
+}
@@ -1,5 +1,17 @@
 package proxy;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
 // Proxy Pattern = a stand-in object that controls access to a real object.
 // Common use cases: lazy loading, caching, access control.
 
@@ -8,16 +20,70 @@ interface Image {
 }
 
 // Real Subject (heavy object)
+// Big files are memory-mapped: the OS pages bytes in when they're read, and
+// they live outside the Java heap (no GC cost). Small files are cheaper to
+// just copy onto the heap, so below a threshold we read them normally.
 class RealImage implements Image {
+    private static final long DEFAULT_MMAP_THRESHOLD = 64 * 1024;
+    private static volatile long mmapThresholdBytes = DEFAULT_MMAP_THRESHOLD;
+
     private final String filename;
+    private ByteBuffer data;
+    private boolean mapped;
 
     public RealImage(String filename) {
         this.filename = filename;
         loadFromDisk(); // heavy work
     }
 
+    // Files of at least this many bytes are memory-mapped, smaller ones are copied
+    public static void setMmapThreshold(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("threshold must be >= 0: " + bytes);
+        }
+        mmapThresholdBytes = bytes;
+    }
+
     private void loadFromDisk() {
         System.out.println("Loading image from disk: " + filename + " (heavy)");
+        Path path = Paths.get(filename);
+        // FileChannel.open throws NoSuchFileException for a missing file
+        // (so a typo isn't cached as a valid image)
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // Neither a heap ByteBuffer nor a single mapping can be bigger than 2 GB
+                throw new IOException("Image too large (" + size + " bytes, max " + Integer.MAX_VALUE + ")");
+            }
+            if (size >= mmapThresholdBytes) {
+                // The mapping stays valid after the channel is closed
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                mapped = true;
+            } else {
+                ByteBuffer heap = ByteBuffer.allocate((int) size);
+                while (heap.hasRemaining()) {
+                    if (channel.read(heap) < 0) break; // EOF (file shrank while reading)
+                }
+                heap.flip();
+                data = heap;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load image " + filename, e);
+        }
+    }
+
+    // Read-only view of the image bytes (each caller gets its own position/limit)
+    public ByteBuffer data() {
+        return data.asReadOnlyBuffer();
+    }
+
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    // How much memory this image holds (used by ImageCache to stay within budget)
+    public long sizeInBytes() {
+        return data.capacity();
     }
 
     public void display() {
@@ -26,28 +92,83 @@ class RealImage implements Image {
 }
 
 // Proxy (controls access + lazy-loads)
+// Thread-safe, single-flight: if many threads call display() before the image
+// is loaded, exactly one of them loads it and the others wait for that load
+// (double-checked locking on a volatile field).
+//
+// With an ImageCache the proxy keeps no image of its own: every display() asks
+// the shared cache, so proxies for the same file share one RealImage and an
+// evicted image is re-loaded on the next display().
 class ImageProxy implements Image {
     private final String filename;
-    private RealImage realImage; // starts null (not loaded yet)
+    private final ImageCache cache;      // null = proxy keeps its own copy
+    private volatile RealImage realImage; // starts null (not loaded yet)
+
+    // Metrics
+    private volatile long loadNanos = -1;                    // -1 = not loaded yet
+    private final AtomicInteger waiters = new AtomicInteger(); // callers that waited on someone else's load
 
     public ImageProxy(String filename) {
+        this(filename, null);
+    }
+
+    public ImageProxy(String filename, ImageCache cache) {
         this.filename = filename;
+        this.cache = cache;
     }
 
     public void display() {
-        // Lazy loading: load only when needed
-        if (realImage == null) {
-            realImage = new RealImage(filename);
+        if (cache != null) {
+            cache.get(filename).display();
+            return;
+        }
+
+        // Fast path: one volatile read once loaded, no locking
+        RealImage image = realImage;
+        if (image == null) {
+            image = load();
+        }
+        image.display();
+    }
+
+    private synchronized RealImage load() {
+        // Second check: another thread may have loaded it while we waited for the lock
+        if (realImage != null) {
+            waiters.incrementAndGet();
+            return realImage;
         }
-        realImage.display();
+        long start = System.nanoTime();
+        RealImage image = new RealImage(filename);
+        loadNanos = System.nanoTime() - start;
+        realImage = image; // publish only after it's fully constructed
+        return image;
     }
+
+    // Start loading before the first display() (needs a shared ImageCache)
+    public CompletableFuture<RealImage> preload() {
+        if (cache == null) {
+            throw new IllegalStateException("preload() needs an ImageCache: " + filename);
+        }
+        return cache.prefetch(filename);
+    }
+
+    public boolean cancelPreload() {
+        return cache != null && cache.cancelPrefetch(filename);
+    }
+
+    // Metrics below are for the proxy's own copy; see ImageCache for the shared one
+    public boolean isLoaded() { return realImage != null; }
+    public long loadTimeNanos() { return loadNanos; }
+    public int waiterCount() { return waiters.get(); }
 }
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Path dir = Files.createTempDirectory("images");
+        dir.toFile().deleteOnExit(); // registered first, so it's deleted after its files
 
         // Proxy created (fast, no heavy loading yet)
-        Image img = new ImageProxy("cat.png");
+        ImageProxy img = new ImageProxy(writeImage(dir, "cat.png", 300));
 
         System.out.println("Proxy created. Nothing loaded yet.\n");
 
@@ -58,5 +179,64 @@ public class Main {
 
         // Second display does NOT load again (already cached)
         img.display();
+
+        // Many threads hitting a fresh proxy at once still load it only once
+        ImageProxy shared = new ImageProxy(writeImage(dir, "dog.png", 300));
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(shared::display);
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        System.out.println("\nLoad took " + shared.loadTimeNanos() / 1000 + " us, "
+                + shared.waiterCount() + " caller(s) waited for it");
+
+        // Shared cache: many proxies, one copy per file, bounded by total bytes
+        String a = writeImage(dir, "a.png", 400);
+        String b = writeImage(dir, "b.png", 400);
+        String c = writeImage(dir, "c.png", 400);
+
+        ImageCache cache = new ImageCache(1000); // room for two 400-byte images
+        Image[] thumbnails = {
+            new ImageProxy(a, cache), new ImageProxy(a, cache),
+            new ImageProxy(b, cache), new ImageProxy(c, cache), // c evicts a
+            new ImageProxy(a, cache)                            // a is loaded again
+        };
+        System.out.println();
+        for (Image thumb : thumbnails) {
+            thumb.display();
+        }
+        System.out.println("\nCache: " + cache.size() + " images, " + cache.currentBytes() + "/" + cache.maxBytes()
+                + " bytes, hits = " + cache.hitCount() + ", misses = " + cache.missCount()
+                + ", evictions = " + cache.evictionCount());
+
+        // Prefetch: load the next page of thumbnails in the background,
+        // then display() only waits if a load hasn't finished yet
+        String d = writeImage(dir, "d.png", 100);
+        String e = writeImage(dir, "e.png", 100);
+        ImageCache gallery = new ImageCache(10_000);
+        gallery.prefetch(Arrays.asList(d, e));
+
+        ImageProxy next = new ImageProxy(d, gallery);
+        next.preload().join(); // (just to make the demo output deterministic)
+        System.out.println();
+        next.display();
+        gallery.cancelPrefetch(e); // user scrolled away; cancels it if it hasn't started
+
+        // Large files are memory-mapped instead of copied onto the heap
+        RealImage.setMmapThreshold(1024);
+        RealImage big = new RealImage(writeImage(dir, "big.png", 1_000_000));
+        RealImage small = new RealImage(writeImage(dir, "small.png", 200));
+        System.out.println("big.png mapped = " + big.isMapped() + " (" + big.data().remaining() + " bytes), "
+                + "small.png mapped = " + small.isMapped() + " (" + small.data().remaining() + " bytes)");
+    }
+
+    private static String writeImage(Path dir, String name, int bytes) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, new byte[bytes]);
+        file.toFile().deleteOnExit();
+        return file.toString();
     }
 }